@@ -14,6 +14,11 @@
 
 package com.github.haixing_hu.swt.action;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.core.commands.NotEnabledException;
 import org.eclipse.jface.action.Action;
@@ -31,14 +36,12 @@ import org.eclipse.jface.bindings.keys.KeyLookupFactory;
 import org.eclipse.jface.bindings.keys.KeyStroke;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
-import org.eclipse.jface.resource.LocalResourceManager;
-import org.eclipse.jface.resource.ResourceManager;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.Policy;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.jface.util.Util;
 import org.eclipse.swt.SWT;
-import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
@@ -52,6 +55,8 @@ import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
 import org.eclipse.swt.widgets.Widget;
 
+import com.github.haixing_hu.swt.utils.TextElider;
+
 /**
  * A contribution item which delegates to an action.
  * <p>
@@ -66,6 +71,12 @@ import org.eclipse.swt.widgets.Widget;
  * (modified version of) action's "showImage" property.</li>
  * <li>Appends "..." to the title of the menu item if the (modified version of)
  * action's "showDialog" property is true.
+ * <li>The images are shared by all the contribution items of a display
+ * through a reference counted {@link ImageDescriptorRegistry}, so each
+ * distinct icon is created only once.
+ * <li>The property changes fired by non-UI threads are coalesced: the names
+ * of the changed properties are collected, and applied by a single pending
+ * runnable, with one update per distinct property.
  * </ul>
  *
  * @noextend This class is not intended to be subclassed by clients.
@@ -82,9 +93,6 @@ public class ActionContributionItemEx extends ContributionItem {
    */
   public static int MODE_FORCE_TEXT = 1;
 
-  /** a string inserted in the middle of text that has been shortened */
-  private static final String ellipsis = "..."; //$NON-NLS-1$
-
   /**
    * A string append to the title of menu item in case that the menu item
    * would show a dialog.
@@ -150,9 +158,16 @@ public class ActionContributionItemEx extends ContributionItem {
   };
 
   /**
-   * Remembers all images in use by this contribution item
+   * Remembers all images in use by this contribution item, which are acquired
+   * from the {@link #imageRegistry}.
+   */
+  private List<Image> images = new ArrayList<Image>();
+
+  /**
+   * The registry from which the images in use are acquired; <code>null</code>
+   * if no image is in use.
    */
-  private LocalResourceManager imageManager;
+  private ImageDescriptorRegistry imageRegistry = null;
 
   /**
    * Listener for SWT button widget events.
@@ -187,6 +202,30 @@ public class ActionContributionItemEx extends ContributionItem {
 
   private Listener menuCreatorListener;
 
+  /**
+   * The names of the properties changed by non-UI threads and not applied
+   * yet. It is guarded by itself, and it is not empty if and only if the
+   * {@link #pendingUpdater} is scheduled.
+   */
+  private final Set<String> pendingProperties = new LinkedHashSet<String>();
+
+  /**
+   * Applies the pending property changes in the UI thread.
+   */
+  private final Runnable pendingUpdater = new Runnable() {
+    @Override
+    public void run() {
+      final String[] properties;
+      synchronized (pendingProperties) {
+        properties = pendingProperties.toArray(new String[pendingProperties.size()]);
+        pendingProperties.clear();
+      }
+      for (final String property : properties) {
+        update(property);
+      }
+    }
+  };
+
   /**
    * Creates a new contribution item from the given action. The id of the action
    * is used as the id of the item.
@@ -216,12 +255,16 @@ public class ActionContributionItemEx extends ContributionItem {
       if (display.getThread() == Thread.currentThread()) {
         update(e.getProperty());
       } else {
-        display.asyncExec(new Runnable() {
-          @Override
-          public void run() {
-            update(e.getProperty());
-          }
-        });
+        //  coalesce the changes, so that at most one runnable per item is
+        //  pending in the event queue
+        final boolean schedule;
+        synchronized (pendingProperties) {
+          schedule = pendingProperties.isEmpty();
+          pendingProperties.add(e.getProperty());
+        }
+        if (schedule) {
+          display.asyncExec(pendingUpdater);
+        }
       }
 
     }
@@ -1082,10 +1125,12 @@ public class ActionContributionItemEx extends ContributionItem {
    *         <code>false</code> if not
    */
   private boolean updateImages(boolean forceImage) {
-
-    final ResourceManager parentResourceManager = JFaceResources.getResources();
+    final ImageDescriptorRegistry registry =
+        ImageDescriptorRegistry.getInstance(widget.getDisplay());
+    final List<Image> acquired = new ArrayList<Image>();
 
     if (widget instanceof ToolItem) {
+      final ToolItem toolItem = (ToolItem) widget;
       if (USE_COLOR_ICONS) {
         ImageDescriptor image = action.getHoverImageDescriptor();
         if (image == null) {
@@ -1099,38 +1144,38 @@ public class ActionContributionItemEx extends ContributionItem {
           image = ImageDescriptor.getMissingImageDescriptor();
         }
 
-        final LocalResourceManager localManager = new LocalResourceManager(
-            parentResourceManager);
-
         // performance: more efficient in SWT to set disabled and hot
         // image before regular image
-        ((ToolItem) widget).setDisabledImage(disabledImage == null ? null
-            : localManager.createImageWithDefault(disabledImage));
-        ((ToolItem) widget).setImage(image == null ? null : localManager
-            .createImageWithDefault(image));
+        final Image disabled = acquireImage(registry, acquired, disabledImage, SWT.IMAGE_COPY);
+        if (toolItem.getDisabledImage() != disabled) {
+          toolItem.setDisabledImage(disabled);
+        }
+        final Image regular = acquireImage(registry, acquired, image, SWT.IMAGE_COPY);
+        if (toolItem.getImage() != regular) {
+          toolItem.setImage(regular);
+        }
 
-        disposeOldImages();
-        imageManager = localManager;
+        replaceImages(registry, acquired);
 
         return image != null;
       }
       ImageDescriptor image = action.getImageDescriptor();
+      int imageFlags = SWT.IMAGE_COPY;
       ImageDescriptor hoverImage = action.getHoverImageDescriptor();
       final ImageDescriptor disabledImage = action.getDisabledImageDescriptor();
 
       // If there is no regular image, but there is a hover image,
       // convert the hover image to gray and use it as the regular image.
       if ((image == null) && (hoverImage != null)) {
-        image = ImageDescriptor.createWithFlags(
-            action.getHoverImageDescriptor(), SWT.IMAGE_GRAY);
+        image = hoverImage;
+        imageFlags = SWT.IMAGE_GRAY;
       } else {
         // If there is no hover image, use the regular image as the
         // hover image,
         // and convert the regular image to gray
         if ((hoverImage == null) && (image != null)) {
           hoverImage = image;
-          image = ImageDescriptor.createWithFlags(action.getImageDescriptor(),
-              SWT.IMAGE_GRAY);
+          imageFlags = SWT.IMAGE_GRAY;
         }
       }
 
@@ -1139,24 +1184,23 @@ public class ActionContributionItemEx extends ContributionItem {
         image = ImageDescriptor.getMissingImageDescriptor();
       }
 
-      // Create a local resource manager to remember the images we've
-      // allocated for this tool item
-      final LocalResourceManager localManager = new LocalResourceManager(
-          parentResourceManager);
-
       // performance: more efficient in SWT to set disabled and hot image
       // before regular image
-      ((ToolItem) widget).setDisabledImage(disabledImage == null ? null
-          : localManager.createImageWithDefault(disabledImage));
-      ((ToolItem) widget).setHotImage(hoverImage == null ? null : localManager
-          .createImageWithDefault(hoverImage));
-      ((ToolItem) widget).setImage(image == null ? null : localManager
-          .createImageWithDefault(image));
-
-      // Now that we're no longer referencing the old images, clear them
-      // out.
-      disposeOldImages();
-      imageManager = localManager;
+      final Image disabled = acquireImage(registry, acquired, disabledImage, SWT.IMAGE_COPY);
+      if (toolItem.getDisabledImage() != disabled) {
+        toolItem.setDisabledImage(disabled);
+      }
+      final Image hot = acquireImage(registry, acquired, hoverImage, SWT.IMAGE_COPY);
+      if (toolItem.getHotImage() != hot) {
+        toolItem.setHotImage(hot);
+      }
+      final Image regular = acquireImage(registry, acquired, image, imageFlags);
+      if (toolItem.getImage() != regular) {
+        toolItem.setImage(regular);
+      }
+
+      // Now that we're no longer referencing the old images, release them.
+      replaceImages(registry, acquired);
 
       return image != null;
     } else if ((widget instanceof Item) || (widget instanceof Button)) {
@@ -1171,23 +1215,19 @@ public class ActionContributionItemEx extends ContributionItem {
         image = ImageDescriptor.getMissingImageDescriptor();
       }
 
-      // Create a local resource manager to remember the images we've
-      // allocated for this widget
-      final LocalResourceManager localManager = new LocalResourceManager(
-          parentResourceManager);
-
+      final Image regular = acquireImage(registry, acquired, image, SWT.IMAGE_COPY);
       if (widget instanceof Item) {
-        ((Item) widget).setImage(image == null ? null : localManager
-            .createImageWithDefault(image));
+        if (((Item) widget).getImage() != regular) {
+          ((Item) widget).setImage(regular);
+        }
       } else if (widget instanceof Button) {
-        ((Button) widget).setImage(image == null ? null : localManager
-            .createImageWithDefault(image));
+        if (((Button) widget).getImage() != regular) {
+          ((Button) widget).setImage(regular);
+        }
       }
 
-      // Now that we're no longer referencing the old images, clear them
-      // out.
-      disposeOldImages();
-      imageManager = localManager;
+      // Now that we're no longer referencing the old images, release them.
+      replaceImages(registry, acquired);
 
       return image != null;
     }
@@ -1195,20 +1235,68 @@ public class ActionContributionItemEx extends ContributionItem {
   }
 
   /**
-   * Dispose any images allocated for this contribution item
+   * Acquires an image from the image registry.
+   *
+   * @param registry
+   *          the image registry.
+   * @param acquired
+   *          the list where to remember the acquired image.
+   * @param descriptor
+   *          the image descriptor, or <code>null</code> if none.
+   * @param flags
+   *          the flags used to create the image.
+   * @return the acquired image, or <code>null</code> if the descriptor is
+   *         <code>null</code>.
+   */
+  private static Image acquireImage(ImageDescriptorRegistry registry,
+      List<Image> acquired, ImageDescriptor descriptor, int flags) {
+    if (descriptor == null) {
+      return null;
+    }
+    final Image image = registry.acquire(descriptor, flags);
+    acquired.add(image);
+    return image;
+  }
+
+  /**
+   * Replaces the images in use by this contribution item with the newly
+   * acquired ones, and releases the old ones.
+   * <p>
+   * The new images are acquired before the old ones are released, so the
+   * images unchanged by the update are never re-created.
+   *
+   * @param registry
+   *          the image registry.
+   * @param acquired
+   *          the newly acquired images.
+   */
+  private void replaceImages(ImageDescriptorRegistry registry,
+      List<Image> acquired) {
+    disposeOldImages();
+    images = acquired;
+    imageRegistry = registry;
+  }
+
+  /**
+   * Releases any images acquired for this contribution item.
    */
   private void disposeOldImages() {
-    if (imageManager != null) {
-      imageManager.dispose();
-      imageManager = null;
+    if (imageRegistry != null) {
+      for (final Image image : images) {
+        imageRegistry.release(image);
+      }
+      imageRegistry = null;
     }
+    images = new ArrayList<Image>();
   }
 
   /**
    * Shorten the given text <code>t</code> so that its length doesn't exceed the
-   * width of the given ToolItem.The default implementation replaces characters
-   * in the center of the original string with an ellipsis ("..."). Override if
-   * you need a different strategy.
+   * width of the given ToolItem. The default implementation replaces the
+   * characters at the end of the original string with an ellipsis ("..."),
+   * using the shared {@link TextElider} of the display. If not even one
+   * character fits the width, the original text is returned. Override if you
+   * need a different strategy.
    *
    * @param textValue
    *          the text to shorten
@@ -1221,28 +1309,13 @@ public class ActionContributionItemEx extends ContributionItem {
     if (textValue == null) {
       return null;
     }
-
-    final GC gc = new GC(item.getParent());
-
+    final ToolBar parent = item.getParent();
     final int maxWidth = item.getImage().getBounds().width * 4;
-
-    if (gc.textExtent(textValue).x < maxWidth) {
-      gc.dispose();
-      return textValue;
-    }
-
-    for (int i = textValue.length(); i > 0; i--) {
-      String test = textValue.substring(0, i);
-      test = test + ellipsis;
-      if (gc.textExtent(test).x < maxWidth) {
-        gc.dispose();
-        return test;
-      }
-
-    }
-    gc.dispose();
-    // If for some reason we fall through abort
-    return textValue;
+    //  the shortened text must be narrower than the maximum width
+    final String result = TextElider.getInstance(item.getDisplay())
+        .elide(parent, parent.getFont(), textValue, maxWidth - 1, TextElider.ELIDE_END);
+    //  keep the original text if not even one character fits
+    return (result.equals(TextElider.ELLIPSIS) ? textValue : result);
   }
 
   /*
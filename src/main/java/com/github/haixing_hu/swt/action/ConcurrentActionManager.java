@@ -0,0 +1,230 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.action;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jface.action.IContributionItem;
+import org.eclipse.swt.SWT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An implementation of {@link IActionManager} backed by a concurrent hash map.
+ * <p>
+ * The actions could be added, removed and looked up from any thread. The
+ * lookups are lock-free and take O(1) time, so resolving the IDs of the
+ * actions while building menus with thousands of items is cheap.
+ * <p>
+ * The collection returned by {@link #getAll()} is an immutable snapshot,
+ * which is shared by all readers until the next modification of this action
+ * manager; hence the readers never copy the actions.
+ * <p>
+ * This action manager also keeps a reverse index from the ID of an action to
+ * the contribution items displaying it, which is maintained by the
+ * contribution managers built from this action manager, e.g., the
+ * {@link com.github.haixing_hu.swt.menu.SubMenuCreator}.
+ *
+ * @author Haixing Hu
+ */
+public class ConcurrentActionManager implements IActionManager {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentActionManager.class);
+
+  private final ConcurrentMap<String, ActionEx> actions;
+  private final ConcurrentMap<String, Set<IContributionItem>> items;
+  private final AtomicInteger modCount;
+  private volatile Snapshot snapshot;
+
+  /**
+   * Constructs an empty action manager.
+   */
+  public ConcurrentActionManager() {
+    actions = new ConcurrentHashMap<String, ActionEx>();
+    items = new ConcurrentHashMap<String, Set<IContributionItem>>();
+    modCount = new AtomicInteger(0);
+    snapshot = null;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return actions.isEmpty();
+  }
+
+  @Override
+  public int size() {
+    return actions.size();
+  }
+
+  @Override
+  public boolean contains(String id) {
+    return (id != null) && actions.containsKey(id);
+  }
+
+  @Override
+  public ActionEx get(String id) {
+    return (id == null ? null : actions.get(id));
+  }
+
+  /**
+   * Gets all actions in this action manager.
+   * <p>
+   * The returned collection is an unmodifiable snapshot of the actions, in no
+   * particular order, which is not affected by the later modifications of this
+   * action manager.
+   *
+   * @return the collection of all actions in this action manager.
+   */
+  @Override
+  public Collection<ActionEx> getAll() {
+    //  read the modification count before the actions, so a snapshot never
+    //  misses the modifications counted by its stamp
+    final int stamp = modCount.get();
+    final Snapshot current = snapshot;
+    if ((current != null) && (current.stamp == stamp)) {
+      return current.actions;
+    }
+    final List<ActionEx> list = Collections.unmodifiableList(
+        new ArrayList<ActionEx>(actions.values()));
+    snapshot = new Snapshot(stamp, list);
+    return list;
+  }
+
+  /**
+   * Adds an action to this action manager.
+   * <p>
+   * If this action manager already contains an action with the same ID, it is
+   * replaced by the new action.
+   *
+   * @param action
+   *          an action.
+   */
+  @Override
+  public void add(ActionEx action) {
+    if (action == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    final String id = action.getId();
+    if (id == null) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final ActionEx old = actions.put(id, action);
+    modCount.incrementAndGet();
+    if ((old != null) && (old != action)) {
+      LOGGER.warn("The action {} was replaced.", id);
+    }
+  }
+
+  @Override
+  public ActionEx remove(String id) {
+    if (id == null) {
+      return null;
+    }
+    final ActionEx old = actions.remove(id);
+    if (old != null) {
+      modCount.incrementAndGet();
+    }
+    return old;
+  }
+
+  @Override
+  public void clear() {
+    actions.clear();
+    modCount.incrementAndGet();
+  }
+
+  /**
+   * Registers a contribution item displaying an action.
+   *
+   * @param id
+   *          the ID of the action.
+   * @param item
+   *          the contribution item displaying the action.
+   */
+  public void addItem(String id, IContributionItem item) {
+    if ((id == null) || (item == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    Set<IContributionItem> set = items.get(id);
+    if (set == null) {
+      final Set<IContributionItem> newSet = Collections.newSetFromMap(
+          new ConcurrentHashMap<IContributionItem, Boolean>());
+      set = items.putIfAbsent(id, newSet);
+      if (set == null) {
+        set = newSet;
+      }
+    }
+    set.add(item);
+  }
+
+  /**
+   * Unregisters a contribution item displaying an action.
+   * <p>
+   * The contribution items should be unregistered when they are disposed or
+   * removed from their managers, otherwise they are never released.
+   *
+   * @param id
+   *          the ID of the action.
+   * @param item
+   *          the contribution item displaying the action.
+   */
+  public void removeItem(String id, IContributionItem item) {
+    if ((id == null) || (item == null)) {
+      return;
+    }
+    final Set<IContributionItem> set = items.get(id);
+    if (set != null) {
+      set.remove(item);
+    }
+  }
+
+  /**
+   * Gets the contribution items displaying an action.
+   *
+   * @param id
+   *          the ID of the action.
+   * @return an unmodifiable view of the contribution items displaying the
+   *         action with the specified ID, which may be empty but never
+   *         <code>null</code>.
+   */
+  public Collection<IContributionItem> getItems(String id) {
+    final Set<IContributionItem> set = (id == null ? null : items.get(id));
+    if (set == null) {
+      return Collections.emptySet();
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * An immutable snapshot of the actions, stamped with the modification count
+   * at which it was taken.
+   */
+  private static final class Snapshot {
+    final int stamp;
+    final List<ActionEx> actions;
+
+    Snapshot(int stamp, List<ActionEx> actions) {
+      this.stamp = stamp;
+      this.actions = actions;
+    }
+  }
+}
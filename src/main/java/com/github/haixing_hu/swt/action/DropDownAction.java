@@ -15,11 +15,14 @@
 package com.github.haixing_hu.swt.action;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
-import org.eclipse.jface.action.ActionContributionItem;
 import org.eclipse.jface.action.IAction;
-import org.eclipse.jface.action.IContributionItem;
 import org.eclipse.jface.action.IMenuCreator;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Event;
@@ -135,19 +138,57 @@ public class DropDownAction extends ActionEx {
     }
   }
 
+  /**
+   * Changes the states of sub-actions in a batch.
+   * <p>
+   * The contribution items of the sub-actions are resolved through the index
+   * maintained by the sub-menu creator, and each drop-down menu whose items
+   * changed their visibility is marked dirty only once, so changing the states
+   * of a whole group of sub-actions costs a single update per menu.
+   *
+   * <b>NOTE:</b> The drop-down menus created by this action are marked dirty,
+   * and rebuilt in a single deferred update, or when they are shown.
+   *
+   * @param states
+   *          a map from the IDs of the sub-actions to their new states.
+   */
+  public final void setSubActionStates(Map<String, SubActionState> states) {
+    if (states == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    logger.trace("Set the states of the sub-actions: {}", states);
+    final Set<MenuManagerEx> dirtyMenus = newMenuSet();
+    for (final Map.Entry<String, SubActionState> entry : states.entrySet()) {
+      final String id = entry.getKey();
+      final SubActionState state = entry.getValue();
+      if (state == null) {
+        continue;
+      }
+      if (state.getVisible() != null) {
+        setSubActionVisible(id, state.getVisible(), dirtyMenus);
+      }
+      if (state.getEnabled() != null) {
+        setSubActionEnabled(id, state.getEnabled());
+      }
+      if (state.getChecked() != null) {
+        setSubActionChecked(id, state.getChecked());
+      }
+    }
+    markDirty(dirtyMenus);
+  }
+
   /**
    * Set the visibility of a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param id
    *          the ID of the sub-action whose visibility is to be set.
    * @param visible
    *          the visibility to be set.
+   * @param dirtyMenus
+   *          the set where to collect the menus to be marked dirty.
    */
-  private final void setSubActionVisible(String id, boolean visible) {
+  private void setSubActionVisible(String id, boolean visible,
+      Set<MenuManagerEx> dirtyMenus) {
     //  first, set the visibility for the action
     final ActionEx action = actionManager.get(id);
     if (action == null) {
@@ -156,13 +197,10 @@ public class DropDownAction extends ActionEx {
     }
     action.setVisible(visible);
     //  then, set the visibility for the contribution items
-    final Collection<MenuManagerEx> menus = subMenuCreator.getMenuManagers();
-    for (final MenuManagerEx menu : menus) {
-      final IContributionItem item = menu.find(id);
-      if (item != null) {
-        item.setVisible(visible);
-      } else {
-        logger.error("Cannot found the sub-action: {}", id);
+    for (final ActionContributionItemEx item : subMenuCreator.getItems(id)) {
+      item.setVisible(visible);
+      if (item.getParent() instanceof MenuManagerEx) {
+        dirtyMenus.add((MenuManagerEx) item.getParent());
       }
     }
   }
@@ -170,99 +208,90 @@ public class DropDownAction extends ActionEx {
   /**
    * Hides a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <b>NOTE:</b> The drop-down menus created by this action are marked dirty,
+   * and rebuilt in a single deferred update, or when they are shown.
    *
    * @param id
    *          the ID of the sub-action to be hidden.
    */
   public final void hideSubAction(String id) {
     logger.trace("Hide the sub-action: {}", id);
-    setSubActionVisible(id, false);
+    setSubActionsVisible(false, id);
   }
 
   /**
    * Shows a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <b>NOTE:</b> The drop-down menus created by this action are marked dirty,
+   * and rebuilt in a single deferred update, or when they are shown.
    *
    * @param id
    *          the ID of the sub-action to be shown.
    */
   public final void showSubAction(String id) {
     logger.trace("Show the sub-action: {}", id);
-    setSubActionVisible(id, true);
+    setSubActionsVisible(true, id);
   }
 
   /**
    * Hides sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <b>NOTE:</b> The drop-down menus created by this action are marked dirty,
+   * and rebuilt in a single deferred update, or when they are shown.
    *
    * @param ids
    *          the IDs of sub-actions to be hidden.
    */
   public final void hideSubActions(String ... ids) {
     logger.trace("Hide the sub-actions: {}", (Object[])ids);
-    for (final String id : ids) {
-      setSubActionVisible(id, false);
-    }
+    setSubActionsVisible(false, ids);
   }
 
   /**
    * Shows sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <b>NOTE:</b> The drop-down menus created by this action are marked dirty,
+   * and rebuilt in a single deferred update, or when they are shown.
    *
    * @param ids
    *          the IDs of sub-actions to be shown.
    */
   public final void showSubActions(String ... ids) {
     logger.trace("Show the sub-actions: {}", (Object[])ids);
+    setSubActionsVisible(true, ids);
+  }
+
+  private void setSubActionsVisible(boolean visible, String ... ids) {
+    final Set<MenuManagerEx> dirtyMenus = newMenuSet();
     for (final String id : ids) {
-      setSubActionVisible(id, true);
+      setSubActionVisible(id, visible, dirtyMenus);
     }
+    markDirty(dirtyMenus);
   }
 
   /**
    * Set the checking status of a sub-action.
-   *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <p>
+   * The sub-action is shared by all the drop-down menus created by this
+   * action, whose menu items are updated by listening to its changes.
    *
    * @param id
    *          the ID of the sub-action whose checking status is to be set.
    * @param checked
    *          the checking status to be set.
    */
-  private final void setSubActionChecked(String id, boolean checked) {
-    final Collection<MenuManagerEx> menus = subMenuCreator.getMenuManagers();
-    for (final MenuManagerEx menu : menus) {
-      final IContributionItem item = menu.find(id);
-      if (item != null) {
-        final IAction action = ((ActionContributionItem) item).getAction();
-        action.setChecked(checked);
-      } else {
-        logger.error("Cannot found the sub-action: {}", id);
-      }
+  private void setSubActionChecked(String id, boolean checked) {
+    final ActionEx action = actionManager.get(id);
+    if (action != null) {
+      action.setChecked(checked);
+    } else {
+      logger.error("Cannot found the sub-action: {}", id);
     }
   }
 
   /**
    * Unchecks a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param id
    *          the ID of the sub-action to be set to unchecked.
    */
@@ -274,10 +303,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Checks a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param id
    *          the ID of the sub-action to be set to checked.
    */
@@ -289,10 +314,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Unchecks sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param ids
    *          the IDs of sub-actions to be set to unchecked.
    */
@@ -306,10 +327,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Checks sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param ids
    *          the IDs of sub-actions to be set to checked.
    */
@@ -322,37 +339,27 @@ public class DropDownAction extends ActionEx {
 
   /**
    * Set the ability status of a sub-action.
-   *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
+   * <p>
+   * The sub-action is shared by all the drop-down menus created by this
+   * action, whose menu items are updated by listening to its changes.
    *
    * @param id
    *          the ID of the sub-action whose ability status is to be set.
    * @param enabled
    *          the ability status to be set.
    */
-  private final void setSubActionEnabled(String id, boolean enabled) {
-    final Collection<MenuManagerEx> menus = subMenuCreator.getMenuManagers();
-    for (final MenuManagerEx menu : menus) {
-      final IContributionItem item = menu.find(id);
-      if (item != null) {
-        final IAction action = ((ActionContributionItem) item).getAction();
-        action.setEnabled(enabled);
-      } else {
-        logger.error("Cannot found the sub-action: {}", id);
-      }
+  private void setSubActionEnabled(String id, boolean enabled) {
+    final ActionEx action = actionManager.get(id);
+    if (action != null) {
+      action.setEnabled(enabled);
+    } else {
+      logger.error("Cannot found the sub-action: {}", id);
     }
   }
 
-
   /**
    * Disables a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param id
    *          the ID of the sub-action to be disabled.
    */
@@ -364,10 +371,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Enables a sub-action.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param id
    *          the ID of the sub-action to be enabled.
    */
@@ -379,10 +382,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Disables sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param ids
    *          the IDs of sub-actions to be disabled.
    */
@@ -396,10 +395,6 @@ public class DropDownAction extends ActionEx {
   /**
    * Enables sub-actions.
    *
-   * <b>NOTE:</b> After calling this function, the {@link #update(true)}
-   * or {@link #updateAll(true)} must be called in order to rebuild all
-   * the drop-down menus created by this action.
-   *
    * @param ids
    *          the IDs of sub-actions to be enabled.
    */
@@ -409,4 +404,78 @@ public class DropDownAction extends ActionEx {
       setSubActionEnabled(id, true);
     }
   }
+
+  private static Set<MenuManagerEx> newMenuSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<MenuManagerEx, Boolean>());
+  }
+
+  private static void markDirty(Set<MenuManagerEx> menus) {
+    for (final MenuManagerEx menu : menus) {
+      menu.markDirty();
+    }
+  }
+
+  /**
+   * The new state of a sub-action, used by
+   * {@link DropDownAction#setSubActionStates(Map)}.
+   * <p>
+   * Each of the visibility, the ability and the checking status may be
+   * <code>null</code>, which means it is left unchanged.
+   */
+  public static final class SubActionState {
+    private final Boolean visible;
+    private final Boolean enabled;
+    private final Boolean checked;
+
+    /**
+     * Constructs a state of a sub-action.
+     *
+     * @param visible
+     *          the new visibility, or <code>null</code> to leave it unchanged.
+     * @param enabled
+     *          the new ability status, or <code>null</code> to leave it
+     *          unchanged.
+     * @param checked
+     *          the new checking status, or <code>null</code> to leave it
+     *          unchanged.
+     */
+    public SubActionState(Boolean visible, Boolean enabled, Boolean checked) {
+      this.visible = visible;
+      this.enabled = enabled;
+      this.checked = checked;
+    }
+
+    /**
+     * Gets the new visibility.
+     *
+     * @return the new visibility, or <code>null</code> if it is left unchanged.
+     */
+    public Boolean getVisible() {
+      return visible;
+    }
+
+    /**
+     * Gets the new ability status.
+     *
+     * @return the new ability status, or <code>null</code> if it is left unchanged.
+     */
+    public Boolean getEnabled() {
+      return enabled;
+    }
+
+    /**
+     * Gets the new checking status.
+     *
+     * @return the new checking status, or <code>null</code> if it is left unchanged.
+     */
+    public Boolean getChecked() {
+      return checked;
+    }
+
+    @Override
+    public String toString() {
+      return "{visible: " + visible + ", enabled: " + enabled
+          + ", checked: " + checked + "}";
+    }
+  }
 }
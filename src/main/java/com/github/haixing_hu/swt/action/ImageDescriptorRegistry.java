@@ -0,0 +1,204 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.action;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.haixing_hu.swt.utils.ResourceTracker;
+
+/**
+ * A registry of the images created from the image descriptors of the actions,
+ * shared by all action contribution items of a display.
+ * <p>
+ * The images are keyed by the image descriptor and the flags used to create
+ * them, i.e., {@link SWT#IMAGE_COPY} for the plain, hot and disabled images,
+ * and {@link SWT#IMAGE_GRAY} for the gray variants. The images are reference
+ * counted: an action shown in a menu, a tool bar and a context menu uses the
+ * same images, which are created once, and disposed when they are no longer
+ * used, or when the display is disposed. The images are created through
+ * {@link ResourceTracker}, so they show up in its resource reports.
+ * <p>
+ * The instances of this class must be accessed in the UI thread of its
+ * display.
+ *
+ * @author Haixing Hu
+ */
+final class ImageDescriptorRegistry {
+
+  private static final String DATA_KEY = ImageDescriptorRegistry.class.getName();
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ImageDescriptorRegistry.class);
+
+  /**
+   * Gets the image descriptor registry of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the image descriptor registry of the specified display.
+   */
+  static ImageDescriptorRegistry getInstance(final Display display) {
+    ImageDescriptorRegistry registry = (ImageDescriptorRegistry) display.getData(DATA_KEY);
+    if (registry == null) {
+      registry = new ImageDescriptorRegistry(display);
+      display.setData(DATA_KEY, registry);
+      final ImageDescriptorRegistry theRegistry = registry;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theRegistry.dispose();
+        }
+      });
+    }
+    return registry;
+  }
+
+  private final Display display;
+  private final Map<Key, SharedImage> images;
+  private final Map<Image, SharedImage> owners;
+
+  private ImageDescriptorRegistry(final Display display) {
+    this.display = display;
+    this.images = new HashMap<Key, SharedImage>();
+    this.owners = new IdentityHashMap<Image, SharedImage>();
+  }
+
+  /**
+   * Acquires the image created from an image descriptor.
+   * <p>
+   * The returned image is shared and <b>MUST NOT</b> be disposed by the
+   * caller. It should be released by calling {@link #release(Image)} when it
+   * is no longer used. If the image could not be created from the descriptor,
+   * the image of the missing image descriptor is returned.
+   *
+   * @param descriptor
+   *          the image descriptor.
+   * @param flags
+   *          the flags used to create the image, which is either
+   *          {@link SWT#IMAGE_COPY} or {@link SWT#IMAGE_GRAY}.
+   * @return the image created from the image descriptor.
+   */
+  Image acquire(ImageDescriptor descriptor, int flags) {
+    final Key key = new Key(descriptor, flags);
+    SharedImage shared = images.get(key);
+    if (shared == null) {
+      final ImageDescriptor theDescriptor = (flags == SWT.IMAGE_COPY)
+          ? descriptor : ImageDescriptor.createWithFlags(descriptor, flags);
+      final Image image = theDescriptor.createImage(false, display);
+      if (image == null) {
+        LOGGER.warn("Failed to create the image from {}", descriptor);
+        final ImageDescriptor missing = ImageDescriptor.getMissingImageDescriptor();
+        if (descriptor.equals(missing)) {
+          SWT.error(SWT.ERROR_NO_HANDLES);
+        }
+        return acquire(missing, SWT.IMAGE_COPY);
+      }
+      shared = new SharedImage(key, ResourceTracker.trackCached(image));
+      images.put(key, shared);
+      owners.put(image, shared);
+    }
+    ++shared.references;
+    return shared.image;
+  }
+
+  /**
+   * Releases an image acquired by {@link #acquire(ImageDescriptor, int)}.
+   * <p>
+   * The image is disposed when it is released by all of its users.
+   *
+   * @param image
+   *          the image to be released.
+   */
+  void release(Image image) {
+    final SharedImage shared = owners.get(image);
+    if ((shared != null) && (--shared.references == 0)) {
+      images.remove(shared.key);
+      owners.remove(image);
+      image.dispose();
+    }
+  }
+
+  /**
+   * Gets the number of the images in this registry.
+   *
+   * @return the number of the images in this registry.
+   */
+  int size() {
+    return images.size();
+  }
+
+  /**
+   * Disposes all the images in this registry.
+   */
+  void dispose() {
+    for (final SharedImage shared : images.values()) {
+      shared.image.dispose();
+    }
+    images.clear();
+    owners.clear();
+  }
+
+  private static final class SharedImage {
+    final Key key;
+    final Image image;
+    int references;
+
+    SharedImage(Key key, Image image) {
+      this.key = key;
+      this.image = image;
+      this.references = 0;
+    }
+  }
+
+  private static final class Key {
+    private final ImageDescriptor descriptor;
+    private final int flags;
+
+    Key(ImageDescriptor descriptor, int flags) {
+      this.descriptor = descriptor;
+      this.flags = flags;
+    }
+
+    @Override
+    public int hashCode() {
+      return (31 * descriptor.hashCode()) + flags;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (! (obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return descriptor.equals(other.descriptor) && (flags == other.flags);
+    }
+
+    @Override
+    public String toString() {
+      return descriptor + ", " + flags;
+    }
+  }
+}
@@ -0,0 +1,500 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.label;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+
+import com.github.haixing_hu.swt.utils.TextExtentCache;
+
+/**
+ * A windowless hyperlink displayed by a {@link HyperlinkHost}.
+ * <p>
+ * A hyperlink element looks and behaves like a {@link HyperlinkLabel}, but it
+ * is not a native control. Its host does the hit testing, the focus traversal,
+ * the hover tracking and the painting of all its elements, therefore a form
+ * with hundreds of links needs only one native control per host.
+ * <p>
+ * The bounds of an element are relative to its host, and must be set by the
+ * caller, for example by {@link #setLocation(int, int)} followed by
+ * {@link #pack()}. Clicking an element, or pressing RETURN or SPACE while it
+ * has the focus, notifies its selection listeners; the <code>widget</code> of
+ * the event is the host and the <code>data</code> of the event is the element.
+ * <p>
+ * The instances of this class must be accessed in the UI thread of its host.
+ *
+ * @author Haixing Hu
+ */
+public class HyperlinkElement {
+
+  static final int TEXT_FLAGS = SWT.DRAW_TRANSPARENT | SWT.DRAW_MNEMONIC;
+
+  private final HyperlinkHost host;
+  private final List<SelectionListener> selectionListeners;
+  private String text;
+  private String toolTipText;
+  private Rectangle bounds;
+  private boolean enabled;
+  private boolean disposed;
+  private Object data;
+  private Color normalForeground, activeForeground, hoverForeground;
+  private Color normalUnderline, activeUnderline, hoverUnderline;
+
+  /**
+   * Constructs a hyperlink element and adds it to a host.
+   *
+   * @param host
+   *          the host of the new element.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the host is null</li>
+   *              </ul>
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the host has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the host</li>
+   *              </ul>
+   */
+  public HyperlinkElement(final HyperlinkHost host) {
+    if (host == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    final Display display = host.getDisplay();
+    this.host = host;
+    this.selectionListeners = new ArrayList<SelectionListener>();
+    this.text = "";
+    this.toolTipText = null;
+    this.bounds = new Rectangle(0, 0, 0, 0);
+    this.enabled = true;
+    this.disposed = false;
+    this.data = null;
+    this.normalForeground = display.getSystemColor(SWT.COLOR_BLUE);
+    this.hoverForeground = normalForeground;
+    this.activeForeground = display.getSystemColor(SWT.COLOR_RED);
+    this.normalUnderline = null;
+    this.hoverUnderline = normalForeground;
+    this.activeUnderline = activeForeground;
+    host.addElement(this);
+  }
+
+  /**
+   * Gets the host of this element.
+   *
+   * @return the host of this element.
+   */
+  public HyperlinkHost getHost() {
+    return host;
+  }
+
+  /**
+   * Gets the displayed text of this element.
+   *
+   * @return the displayed text of this element, which is never null.
+   */
+  public String getText() {
+    return text;
+  }
+
+  /**
+   * Sets the displayed text of this element. The value <code>null</code>
+   * clears it.
+   * <p>
+   * Mnemonics are indicated by an '&amp;' that causes the next character to be
+   * underlined. The character '&amp;' can be escaped by doubling it.
+   * <p>
+   * Note that the bounds of this element are not changed; call {@link #pack()}
+   * to resize this element to the new text.
+   *
+   * @param text
+   *          the text to be displayed, or null.
+   */
+  public void setText(String text) {
+    checkElement();
+    if (text == null) {
+      text = "";
+    }
+    if (! text.equals(this.text)) {
+      this.text = text;
+      host.redrawElement(this);
+    }
+  }
+
+  /**
+   * Gets the tool tip text of this element.
+   *
+   * @return the tool tip text of this element, or null if it has none.
+   */
+  public String getToolTipText() {
+    return toolTipText;
+  }
+
+  /**
+   * Sets the tool tip text of this element, which is displayed by the host
+   * when the mouse hovers over this element.
+   *
+   * @param toolTipText
+   *          the new tool tip text, or null.
+   */
+  public void setToolTipText(final String toolTipText) {
+    checkElement();
+    this.toolTipText = toolTipText;
+  }
+
+  /**
+   * Gets the bounds of this element, relative to its host.
+   *
+   * @return a copy of the bounds of this element.
+   */
+  public Rectangle getBounds() {
+    return new Rectangle(bounds.x, bounds.y, bounds.width, bounds.height);
+  }
+
+  /**
+   * Sets the bounds of this element, relative to its host.
+   *
+   * @param x
+   *          the new x-coordinate of this element.
+   * @param y
+   *          the new y-coordinate of this element.
+   * @param width
+   *          the new width of this element.
+   * @param height
+   *          the new height of this element.
+   */
+  public void setBounds(final int x, final int y, final int width,
+      final int height) {
+    checkElement();
+    final Rectangle newBounds = new Rectangle(x, y, Math.max(0, width),
+        Math.max(0, height));
+    if (! newBounds.equals(bounds)) {
+      host.redrawElement(this);
+      bounds = newBounds;
+      host.redrawElement(this);
+    }
+  }
+
+  /**
+   * Sets the bounds of this element, relative to its host.
+   *
+   * @param rect
+   *          the new bounds of this element.
+   */
+  public void setBounds(final Rectangle rect) {
+    if (rect == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    setBounds(rect.x, rect.y, rect.width, rect.height);
+  }
+
+  /**
+   * Sets the location of this element, relative to its host.
+   *
+   * @param x
+   *          the new x-coordinate of this element.
+   * @param y
+   *          the new y-coordinate of this element.
+   */
+  public void setLocation(final int x, final int y) {
+    setBounds(x, y, bounds.width, bounds.height);
+  }
+
+  /**
+   * Computes the preferred size of this element.
+   *
+   * @return the preferred size of this element.
+   */
+  public Point computeSize() {
+    checkElement();
+    return TextExtentCache.getInstance(host.getDisplay()).textExtent(host,
+        host.getFont(), text, SWT.DRAW_MNEMONIC);
+  }
+
+  /**
+   * Resizes this element to its preferred size.
+   */
+  public void pack() {
+    final Point size = computeSize();
+    setBounds(bounds.x, bounds.y, size.x, size.y);
+  }
+
+  /**
+   * Tests whether this element is enabled.
+   *
+   * @return true if this element is enabled, false otherwise.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables this element. A disabled element is drawn grayed, and
+   * could neither be clicked nor receive the focus.
+   *
+   * @param enabled
+   *          the new enabled state.
+   */
+  public void setEnabled(final boolean enabled) {
+    checkElement();
+    if (this.enabled != enabled) {
+      this.enabled = enabled;
+      host.elementStateChanged(this);
+    }
+  }
+
+  /**
+   * Gets the application defined data of this element.
+   *
+   * @return the application defined data of this element.
+   */
+  public Object getData() {
+    return data;
+  }
+
+  /**
+   * Sets the application defined data of this element.
+   *
+   * @param data
+   *          the new application defined data.
+   */
+  public void setData(final Object data) {
+    this.data = data;
+  }
+
+  public Color getForeground() {
+    return normalForeground;
+  }
+
+  public void setForeground(final Color color) {
+    checkElement();
+    normalForeground = color;
+    host.redrawElement(this);
+  }
+
+  public Color getHoverForeground() {
+    return hoverForeground;
+  }
+
+  public void setHoverForeground(final Color color) {
+    checkElement();
+    hoverForeground = color;
+    host.redrawElement(this);
+  }
+
+  public Color getActiveForeground() {
+    return activeForeground;
+  }
+
+  public void setActiveForeground(final Color color) {
+    checkElement();
+    activeForeground = color;
+    host.redrawElement(this);
+  }
+
+  public Color getUnderline() {
+    return normalUnderline;
+  }
+
+  public void setUnderline(final Color color) {
+    checkElement();
+    normalUnderline = color;
+    host.redrawElement(this);
+  }
+
+  public Color getHoverUnderline() {
+    return hoverUnderline;
+  }
+
+  public void setHoverUnderline(final Color color) {
+    checkElement();
+    hoverUnderline = color;
+    host.redrawElement(this);
+  }
+
+  public Color getActiveUnderline() {
+    return activeUnderline;
+  }
+
+  public void setActiveUnderline(final Color color) {
+    checkElement();
+    activeUnderline = color;
+    host.redrawElement(this);
+  }
+
+  /**
+   * Adds the listener to receive the selection (click) events of this element.
+   *
+   * @param listener
+   *          the listener to be added.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the listener is null</li>
+   *              </ul>
+   */
+  public void addSelectionListener(final SelectionListener listener) {
+    checkElement();
+    if (listener == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    selectionListeners.add(listener);
+  }
+
+  /**
+   * Removes the listener of the selection events of this element.
+   *
+   * @param listener
+   *          the listener to be removed.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the listener is null</li>
+   *              </ul>
+   */
+  public void removeSelectionListener(final SelectionListener listener) {
+    if (listener == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    selectionListeners.remove(listener);
+  }
+
+  /**
+   * Tests whether this element has been disposed.
+   *
+   * @return true if this element has been disposed, false otherwise.
+   */
+  public boolean isDisposed() {
+    return disposed;
+  }
+
+  /**
+   * Disposes this element and removes it from its host.
+   */
+  public void dispose() {
+    if (! disposed) {
+      if (! host.isDisposed()) {
+        host.removeElement(this);
+      }
+      disposed = true;
+      selectionListeners.clear();
+      data = null;
+    }
+  }
+
+  private void checkElement() {
+    if (disposed) {
+      SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+  }
+
+  /**
+   * Notifies the selection listeners of this element.
+   */
+  void fireSelectionEvent() {
+    final Event event = new Event();
+    event.widget = host;
+    event.display = host.getDisplay();
+    event.type = SWT.Selection;
+    event.data = this;
+    final SelectionEvent e = new SelectionEvent(event);
+    for (final SelectionListener listener :
+        new ArrayList<SelectionListener>(selectionListeners)) {
+      listener.widgetSelected(e);
+    }
+  }
+
+  /**
+   * Paints this element.
+   *
+   * @param gc
+   *          the graphic context of the host.
+   * @param hover
+   *          whether the mouse is over this element.
+   * @param active
+   *          whether this element is being pressed.
+   * @param focused
+   *          whether this element has the keyboard focus.
+   */
+  void paint(final GC gc, final boolean hover, final boolean active,
+      final boolean focused) {
+    if ((bounds.width == 0) || (bounds.height == 0)) {
+      return;
+    }
+    if (focused) {
+      gc.drawFocus(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+    Color textFG, lineFG;
+    if (! enabled) {
+      textFG = host.getDisplay().getSystemColor(SWT.COLOR_WIDGET_NORMAL_SHADOW);
+      lineFG = null;
+    } else if (hover) {
+      textFG = active ? activeForeground : hoverForeground;
+      lineFG = active ? activeUnderline : hoverUnderline;
+    } else {
+      textFG = normalForeground;
+      lineFG = normalUnderline;
+    }
+    if (textFG == null) {
+      textFG = normalForeground;
+    }
+    if (textFG == null) {
+      textFG = host.getDisplay().getSystemColor(SWT.COLOR_WIDGET_FOREGROUND);
+    }
+    final Point extent = TextExtentCache.getInstance(host.getDisplay())
+        .textExtent(host, host.getFont(), text, SWT.DRAW_MNEMONIC);
+    final int textHeight = gc.getFontMetrics().getHeight();
+    final int ty = bounds.y + ((bounds.height - textHeight) / 2);
+    gc.setForeground(textFG);
+    gc.drawText(text, bounds.x, ty, TEXT_FLAGS);
+    if (lineFG != null) {
+      final int uy = ty + gc.getFontMetrics().getAscent()
+          + gc.getFontMetrics().getLeading() + 1;
+      final int lineWidth = Math.min(extent.x, bounds.width);
+      gc.setForeground(lineFG);
+      gc.drawLine(bounds.x, uy, bounds.x + lineWidth, uy);
+    }
+  }
+
+  /**
+   * Tests whether this element contains a point of its host.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return true if this element contains the point.
+   */
+  boolean contains(final int x, final int y) {
+    return bounds.contains(x, y);
+  }
+
+  /**
+   * Gets the bounds of this element without copying it.
+   *
+   * @return the bounds of this element, which must not be modified.
+   */
+  Rectangle bounds() {
+    return bounds;
+  }
+}
@@ -0,0 +1,560 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.label;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+
+/**
+ * A canvas displaying any number of windowless {@link HyperlinkElement}s.
+ * <p>
+ * The host does the hit testing, the hover tracking, the focus traversal and
+ * the painting of all its elements. It owns a single set of listeners and uses
+ * the cursors shared by the display, therefore the number of native handles
+ * and the creation time of a form depend on the number of hosts rather than
+ * the number of links.
+ * <p>
+ * Unless the host is created with the NO_FOCUS style, it accepts the keyboard
+ * focus; TAB and the arrow keys move the focus between its enabled elements,
+ * and RETURN or SPACE triggers the focused element. Entering the host with
+ * TAB focuses its first enabled element, and entering it with SHIFT+TAB
+ * focuses its last enabled element.
+ * <p>
+ * <dl>
+ * <dt><b>Styles:</b></dt>
+ * <dd>NO_FOCUS, BORDER, LEFT_TO_RIGHT, RIGHT_TO_LEFT, and the other styles of
+ * {@link Canvas}</dd>
+ * <dt><b>Events:</b></dt>
+ * <dd>(none)</dd>
+ * </dl>
+ *
+ * @author Haixing Hu
+ */
+public class HyperlinkHost extends Canvas {
+
+  private static final String TRAVERSAL_KEY = HyperlinkHost.class.getName()
+      + ".traversal";
+
+  private final List<HyperlinkElement> elements;
+  private HyperlinkElement hoverElement;
+  private HyperlinkElement activeElement;
+  private HyperlinkElement focusElement;
+  private Shell shell;
+  private Listener shellListener;
+
+  /**
+   * Constructs a new instance of this class given its parent and a style value
+   * describing its behavior and appearance.
+   *
+   * @param parent
+   *          a composite control which will be the parent of the new instance
+   *          (cannot be null)
+   * @param style
+   *          the style of control to construct. The styles are passed to
+   *          {@link Canvas}; the host is always double buffered.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the parent is null</li>
+   *              </ul>
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the parent</li>
+   *              </ul>
+   */
+  public HyperlinkHost(final Composite parent, final int style) {
+    super(parent, style | SWT.DOUBLE_BUFFERED);
+    elements = new ArrayList<HyperlinkElement>();
+    hoverElement = null;
+    activeElement = null;
+    focusElement = null;
+    addListeners((style & SWT.NO_FOCUS) == 0);
+  }
+
+  private void addListeners(final boolean takeFocus) {
+    final Listener listener = new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        switch (event.type) {
+        case SWT.Paint:
+          onPaint(event);
+          break;
+        case SWT.MouseMove:
+        case SWT.MouseEnter:
+          setHoverElement(getElement(event.x, event.y));
+          break;
+        case SWT.MouseExit:
+          setHoverElement(null);
+          break;
+        case SWT.MouseDown:
+          onMouseDown(event);
+          break;
+        case SWT.MouseUp:
+          onMouseUp(event);
+          break;
+        case SWT.KeyDown:
+          if ((event.character == ' ') && (focusElement != null)) {
+            focusElement.fireSelectionEvent();
+          }
+          break;
+        case SWT.Traverse:
+          onTraverse(event);
+          break;
+        case SWT.FocusIn:
+          onFocusIn();
+          break;
+        case SWT.FocusOut:
+          redrawElement(focusElement);
+          break;
+        case SWT.Dispose:
+          onDispose();
+          break;
+        }
+      }
+    };
+    for (final int type : new int[] { SWT.Paint, SWT.MouseMove,
+        SWT.MouseEnter, SWT.MouseExit, SWT.MouseDown, SWT.MouseUp,
+        SWT.Dispose }) {
+      addListener(type, listener);
+    }
+    if (takeFocus) {
+      for (final int type : new int[] { SWT.KeyDown, SWT.Traverse,
+          SWT.FocusIn, SWT.FocusOut }) {
+        addListener(type, listener);
+      }
+    }
+    //  removes the stale hover on shell activation / deactivation
+    shell = getShell();
+    shellListener = new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        if (getDisplay().getCursorControl() != HyperlinkHost.this) {
+          setHoverElement(null);
+        }
+      }
+    };
+    shell.addListener(SWT.Activate, shellListener);
+    shell.addListener(SWT.Deactivate, shellListener);
+    if (takeFocus) {
+      getLastTraversal(getDisplay());
+    }
+  }
+
+  /**
+   * Gets the record of the last traversal of a display.
+   * <p>
+   * The traverse event which moves the focus into the host is sent to the
+   * control losing the focus, therefore the details of the traverse events of
+   * a display are recorded by a single filter shared by all the hosts of the
+   * display.
+   *
+   * @param display
+   *          a specified display.
+   * @return a single element array holding the detail of the last traverse
+   *         event of the display.
+   */
+  private static int[] getLastTraversal(final Display display) {
+    int[] traversal = (int[]) display.getData(TRAVERSAL_KEY);
+    if (traversal == null) {
+      traversal = new int[] { SWT.TRAVERSE_NONE };
+      display.setData(TRAVERSAL_KEY, traversal);
+      final int[] theTraversal = traversal;
+      display.addFilter(SWT.Traverse, new Listener() {
+        @Override
+        public void handleEvent(final Event event) {
+          theTraversal[0] = event.detail;
+        }
+      });
+    }
+    return traversal;
+  }
+
+  private void onFocusIn() {
+    final int[] traversal = getLastTraversal(getDisplay());
+    final int detail = traversal[0];
+    traversal[0] = SWT.TRAVERSE_NONE;
+    switch (detail) {
+    case SWT.TRAVERSE_TAB_NEXT:
+    case SWT.TRAVERSE_ARROW_NEXT:
+      setFocusElement(nextFocusElement(- 1, 1));
+      break;
+    case SWT.TRAVERSE_TAB_PREVIOUS:
+    case SWT.TRAVERSE_ARROW_PREVIOUS:
+      //  entered backward, e.g., by SHIFT+TAB
+      setFocusElement(nextFocusElement(elements.size(), - 1));
+      break;
+    default:
+      if (focusElement == null) {
+        setFocusElement(nextFocusElement(- 1, 1));
+      }
+      break;
+    }
+    //  the focused element is painted with the focus ring now
+    redrawElement(focusElement);
+  }
+
+  private void onDispose() {
+    if ((shell != null) && ! shell.isDisposed()) {
+      shell.removeListener(SWT.Activate, shellListener);
+      shell.removeListener(SWT.Deactivate, shellListener);
+    }
+    shell = null;
+    shellListener = null;
+    final HyperlinkElement[] disposing = elements
+        .toArray(new HyperlinkElement[elements.size()]);
+    elements.clear();
+    hoverElement = activeElement = focusElement = null;
+    for (final HyperlinkElement element : disposing) {
+      element.dispose();
+    }
+  }
+
+  private void onPaint(final Event event) {
+    final GC gc = event.gc;
+    gc.setFont(getFont());
+    final Rectangle damaged = new Rectangle(event.x, event.y, event.width,
+        event.height);
+    final boolean hasFocus = isFocusControl();
+    for (final HyperlinkElement element : elements) {
+      //  only the elements in the damaged area are painted
+      if (element.bounds().intersects(damaged)) {
+        element.paint(gc, element == hoverElement,
+            element == activeElement,
+            hasFocus && (element == focusElement));
+      }
+    }
+  }
+
+  private void onMouseDown(final Event event) {
+    if (event.button != 1) {
+      return;
+    }
+    final HyperlinkElement element = getElement(event.x, event.y);
+    if ((element != null) && element.isEnabled()) {
+      activeElement = element;
+      if ((getStyle() & SWT.NO_FOCUS) == 0) {
+        setFocusElement(element);
+      }
+      redrawElement(element);
+    }
+  }
+
+  private void onMouseUp(final Event event) {
+    final HyperlinkElement element = activeElement;
+    if (element == null) {
+      return;
+    }
+    activeElement = null;
+    redrawElement(element);
+    if (element == getElement(event.x, event.y)) {
+      element.fireSelectionEvent();
+    }
+  }
+
+  private void onTraverse(final Event event) {
+    switch (event.detail) {
+    case SWT.TRAVERSE_RETURN:
+      if (focusElement != null) {
+        focusElement.fireSelectionEvent();
+      }
+      event.doit = false;
+      break;
+    case SWT.TRAVERSE_TAB_NEXT:
+    case SWT.TRAVERSE_ARROW_NEXT:
+    case SWT.TRAVERSE_TAB_PREVIOUS:
+    case SWT.TRAVERSE_ARROW_PREVIOUS: {
+      final int step = ((event.detail == SWT.TRAVERSE_TAB_NEXT)
+          || (event.detail == SWT.TRAVERSE_ARROW_NEXT) ? 1 : - 1);
+      final HyperlinkElement next = nextFocusElement(
+          elements.indexOf(focusElement), step);
+      if (next != null) {
+        //  moves the focus inside the host
+        setFocusElement(next);
+        event.doit = false;
+      } else {
+        //  leaves the host
+        setFocusElement(null);
+        event.doit = true;
+      }
+      break;
+    }
+    default:
+      event.doit = true;
+      break;
+    }
+  }
+
+  private HyperlinkElement nextFocusElement(final int from, final int step) {
+    final int n = elements.size();
+    for (int i = from + step; (i >= 0) && (i < n); i += step) {
+      final HyperlinkElement element = elements.get(i);
+      if (element.isEnabled()) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  private void setHoverElement(final HyperlinkElement element) {
+    if (element == hoverElement) {
+      return;
+    }
+    final HyperlinkElement old = hoverElement;
+    hoverElement = element;
+    redrawElement(old);
+    redrawElement(element);
+    if ((element != null) && element.isEnabled()) {
+      setCursor(SWTResourceManager.getCursor(getDisplay(), SWT.CURSOR_HAND));
+    } else {
+      setCursor(null);
+    }
+    final String tip = (element == null ? null : element.getToolTipText());
+    setToolTipText(tip);
+  }
+
+  /**
+   * Gets the element at the given point.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return the top most element at the given point, or null if there is no
+   *         element at that point.
+   */
+  private HyperlinkElement getElement(final int x, final int y) {
+    for (int i = elements.size() - 1; i >= 0; --i) {
+      final HyperlinkElement element = elements.get(i);
+      if (element.contains(x, y)) {
+        return element;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the element at the given point in the receiver or null if no such
+   * element exists. The point is in the coordinate system of the receiver.
+   *
+   * @param point
+   *          the point used to locate the element
+   * @return the element at the given point
+   *
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the point is null</li>
+   *              </ul>
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public HyperlinkElement getElement(final Point point) {
+    checkWidget();
+    if (point == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    return getElement(point.x, point.y);
+  }
+
+  /**
+   * Returns the elements of the receiver.
+   *
+   * @return a copy of the array of the elements of the receiver.
+   *
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public HyperlinkElement[] getElements() {
+    checkWidget();
+    return elements.toArray(new HyperlinkElement[elements.size()]);
+  }
+
+  /**
+   * Returns the number of elements of the receiver.
+   *
+   * @return the number of elements of the receiver.
+   *
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public int getElementCount() {
+    checkWidget();
+    return elements.size();
+  }
+
+  /**
+   * Returns the element having the keyboard focus of the receiver.
+   *
+   * @return the focused element, or null if there is none.
+   *
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public HyperlinkElement getFocusElement() {
+    checkWidget();
+    return focusElement;
+  }
+
+  /**
+   * Sets the element having the keyboard focus of the receiver.
+   *
+   * @param element
+   *          the element to be focused, or null to clear the focused element.
+   *
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_INVALID_ARGUMENT - if the element does not belong
+   *              to the receiver</li>
+   *              </ul>
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public void setFocusElement(final HyperlinkElement element) {
+    checkWidget();
+    if ((element != null) && (element.getHost() != this)) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    if (element != focusElement) {
+      final HyperlinkElement old = focusElement;
+      focusElement = element;
+      redrawElement(old);
+      redrawElement(element);
+    }
+  }
+
+  @Override
+  public Point computeSize(final int wHint, final int hHint,
+      final boolean changed) {
+    checkWidget();
+    int width = 0;
+    int height = 0;
+    for (final HyperlinkElement element : elements) {
+      final Rectangle bounds = element.bounds();
+      width = Math.max(width, bounds.x + bounds.width);
+      height = Math.max(height, bounds.y + bounds.height);
+    }
+    if (wHint != SWT.DEFAULT) {
+      width = wHint;
+    }
+    if (hHint != SWT.DEFAULT) {
+      height = hHint;
+    }
+    final Rectangle trim = computeTrim(0, 0, width, height);
+    return new Point(trim.width, trim.height);
+  }
+
+  @Override
+  public void setFont(final Font font) {
+    super.setFont(font);
+    redraw();
+  }
+
+  void addElement(final HyperlinkElement element) {
+    checkWidget();
+    elements.add(element);
+  }
+
+  void removeElement(final HyperlinkElement element) {
+    checkWidget();
+    final int index = elements.indexOf(element);
+    if (index < 0) {
+      return;
+    }
+    redrawElement(element);
+    elements.remove(index);
+    if (element == hoverElement) {
+      setHoverElement(null);
+    }
+    if (element == activeElement) {
+      activeElement = null;
+    }
+    if (element == focusElement) {
+      focusElement = null;
+    }
+  }
+
+  /**
+   * Called when the enabled state of an element is changed.
+   *
+   * @param element
+   *          the element whose enabled state is changed.
+   */
+  void elementStateChanged(final HyperlinkElement element) {
+    if (! element.isEnabled()) {
+      if (element == activeElement) {
+        activeElement = null;
+      }
+      if (element == focusElement) {
+        setFocusElement(null);
+      }
+    }
+    if (element == hoverElement) {
+      //  updates the cursor
+      hoverElement = null;
+      setHoverElement(element);
+    } else {
+      redrawElement(element);
+    }
+  }
+
+  /**
+   * Redraws the area of an element, including its focus rectangle.
+   *
+   * @param element
+   *          the element to be redrawn, or null to do nothing.
+   */
+  void redrawElement(final HyperlinkElement element) {
+    if ((element != null) && ! isDisposed()) {
+      final Rectangle bounds = element.bounds();
+      if ((bounds.width > 0) && (bounds.height > 0)) {
+        redraw(bounds.x, bounds.y, bounds.width, bounds.height, false);
+      }
+    }
+  }
+}
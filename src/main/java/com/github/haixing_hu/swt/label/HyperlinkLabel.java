@@ -34,6 +34,8 @@ import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.TypedListener;
 
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+
 /**
  * A hyperlink text label.
  * <p>
@@ -102,8 +104,10 @@ public class HyperlinkLabel extends Canvas {
     super(parent, checkStyle(style));
 
     text = "";
-    handCursor = new Cursor(getDisplay(), SWT.CURSOR_HAND);
-    arrowCursor = new Cursor(getDisplay(), SWT.CURSOR_ARROW);
+    //  the cursors are shared by all controls and owned by the
+    //  SWTResourceManager
+    handCursor = SWTResourceManager.getCursor(getDisplay(), SWT.CURSOR_HAND);
+    arrowCursor = SWTResourceManager.getCursor(getDisplay(), SWT.CURSOR_ARROW);
     setCursor(handCursor);
 
     normalForeground = getDisplay().getSystemColor(SWT.COLOR_BLUE);
@@ -126,14 +130,8 @@ public class HyperlinkLabel extends Canvas {
     addDisposeListener(new DisposeListener() {
       @Override
       public void widgetDisposed(DisposeEvent e) {
-        if (handCursor != null) {
-          handCursor.dispose();
-          handCursor = null;
-        }
-        if (arrowCursor != null) {
-          arrowCursor.dispose();
-          arrowCursor = null;
-        }
+        handCursor = null;
+        arrowCursor = null;
         if (shellListener != null) {
           shell.removeListener(SWT.Activate, shellListener);
           shell.removeListener(SWT.Deactivate, shellListener);
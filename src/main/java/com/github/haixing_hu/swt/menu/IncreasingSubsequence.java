@@ -0,0 +1,77 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.menu;
+
+/**
+ * Computes the longest strictly increasing subsequence of a sequence of
+ * integers.
+ * <p>
+ * It is used to compute the minimal set of menu items which must be moved when
+ * the order of the contribution items of a menu changes: the items forming the
+ * longest increasing subsequence of the new positions keep their widgets, and
+ * only the other items are re-created.
+ *
+ * @author Haixing Hu
+ */
+final class IncreasingSubsequence {
+
+  private IncreasingSubsequence() {}
+
+  /**
+   * Computes the longest strictly increasing subsequence of a sequence, by the
+   * patience sorting algorithm in O(n log n) time.
+   *
+   * @param values
+   *          the sequence of integers.
+   * @param n
+   *          the number of integers in the sequence, which are stored in
+   *          <code>values[0 .. n-1]</code>.
+   * @return an array of booleans indicating whether each integer of the
+   *         sequence belongs to the longest strictly increasing subsequence.
+   */
+  static boolean[] longest(int[] values, int n) {
+    final boolean[] result = new boolean[n];
+    if (n == 0) {
+      return result;
+    }
+    //  tails[k] is the index of the smallest tail of the increasing
+    //  subsequences of length k + 1.
+    final int[] tails = new int[n];
+    final int[] previous = new int[n];
+    int length = 0;
+    for (int i = 0; i < n; ++i) {
+      final int value = values[i];
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (values[tails[mid]] < value) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      previous[i] = (low > 0 ? tails[low - 1] : - 1);
+      tails[low] = i;
+      if (low == length) {
+        ++length;
+      }
+    }
+    for (int i = tails[length - 1]; i >= 0; i = previous[i]) {
+      result[i] = true;
+    }
+    return result;
+  }
+}
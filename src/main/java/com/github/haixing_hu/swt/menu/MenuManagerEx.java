@@ -15,7 +15,9 @@
 package com.github.haixing_hu.swt.menu;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.jface.action.ContributionManager;
@@ -45,6 +47,7 @@ import org.eclipse.swt.widgets.ToolBar;
 
 import com.github.haixing_hu.swt.action.ActionContributionItemEx;
 import com.github.haixing_hu.swt.action.ActionEx;
+import com.github.haixing_hu.swt.utils.Messages;
 
 /**
  * A menu manager is a contribution manager which realizes itself and its items
@@ -61,6 +64,16 @@ import com.github.haixing_hu.swt.action.ActionEx;
  * depending on the modified version of action's "showImage" property.</li>
  * <li>Append "..." to the title of the menu item if the modified
  * version of action's "showDialog" property is true.
+ * <li>The updates requested by {@link #markDirty()}, {@link #update(String)}
+ * and {@link #updateAll(boolean)} on a realized menu are deferred and
+ * coalesced by the {@link MenuUpdateScheduler}, and performed once per turn
+ * of the event loop, or just before the menu is shown.
+ * <li>In the lazy mode, the sub-menus get their menu items only when they are
+ * shown for the first time, and are refreshed only when they are shown while
+ * dirty. See {@link #setLazy(boolean)}.
+ * <li>A menu with more items than its page size is split into pages, each
+ * page ending with a "More..." sub-menu holding the next page. See
+ * {@link #setPageSize(int)}.
  * </ul>
  *
  * @author Haixing Hu
@@ -145,6 +158,28 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
    */
   private boolean showImage = true;
 
+  /**
+   * Indicates whether this menu and its sub-menus are populated lazily.
+   */
+  private boolean lazy = false;
+
+  /**
+   * The maximum number of items shown in a page of this menu, or 0 if this
+   * menu is not split into pages.
+   */
+  private int pageSize = 0;
+
+  /**
+   * The pages holding the items beyond the first page of this menu.
+   */
+  private final List<MenuPage> pages = new ArrayList<MenuPage>();
+
+  /**
+   * Indicates whether a forced update of this lazy menu was postponed until
+   * it is shown.
+   */
+  private boolean forceOnShow = false;
+
   /**
    * Creates a menu manager. The text and id are <code>null</code>. Typically
    * used for creating a context menu, where it doesn't need to be referred to
@@ -293,16 +328,8 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
    */
   @Override
   public void dispose() {
-    if (menuExist()) {
-      menu.dispose();
-    }
-    menu = null;
-
-    if (menuItem != null) {
-      menuItem.dispose();
-      menuItem = null;
-    }
-
+    disposeMenu();
+    disposePages(0);
     disposeOldImages();
 
     final IContributionItem[] items = getItems();
@@ -580,11 +607,15 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
    * Notifies all listeners that this menu is about to appear.
    */
   private void handleAboutToShow() {
+    //  perform the pending deferred updates before showing the menu
+    MenuUpdateScheduler.getInstance(menu.getDisplay()).flush();
     if (removeAllWhenShown) {
       removeAll();
     }
     fireAboutToShow(this);
-    update(false, false);
+    final boolean force = forceOnShow;
+    forceOnShow = false;
+    update(force, false);
   }
 
   /**
@@ -651,6 +682,68 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
     this.showImage = showImage;
   }
 
+  /**
+   * Tests whether the sub-menus of this menu are populated lazily.
+   * <p>
+   * A menu is lazy if it is set to be lazy, or if its parent menu is lazy.
+   *
+   * @return <code>true</code> if the sub-menus of this menu are populated
+   *         lazily; <code>false</code> otherwise.
+   */
+  public boolean isLazy() {
+    return lazy
+        || ((parent instanceof MenuManagerEx) && ((MenuManagerEx) parent).isLazy());
+  }
+
+  /**
+   * Sets whether the sub-menus of this menu are populated lazily.
+   * <p>
+   * The recursive update of a lazy menu skips its sub-menus which are not
+   * shown. A skipped sub-menu creates its menu items only when it is shown for
+   * the first time, and is refreshed only when it is shown while dirty.
+   * Therefore the menus which are never opened cost nothing. The setting is
+   * inherited by all the sub-menus.
+   *
+   * @param lazy
+   *          <code>true</code> if the sub-menus of this menu should be
+   *          populated lazily; <code>false</code> otherwise.
+   */
+  public void setLazy(boolean lazy) {
+    this.lazy = lazy;
+  }
+
+  /**
+   * Gets the page size of this menu.
+   *
+   * @return the maximum number of items shown in a page of this menu, or 0 if
+   *         this menu is not split into pages.
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the page size of this menu.
+   * <p>
+   * If this menu has more visible items than the page size, only the first
+   * page of items is shown in this menu, followed by a "More..." sub-menu
+   * holding the next page, and so on. The pages are populated lazily, so a
+   * giant generated menu opens as fast as a menu of one page.
+   *
+   * @param pageSize
+   *          the maximum number of items shown in a page of this menu, or 0
+   *          if this menu should not be split into pages.
+   */
+  public void setPageSize(int pageSize) {
+    if (pageSize < 0) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    if (this.pageSize != pageSize) {
+      this.pageSize = pageSize;
+      markDirty();
+    }
+  }
+
   /*
    * (non-Javadoc)
    *
@@ -751,6 +844,14 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
     if (parent != null) {
       parent.markDirty();
     }
+    // A menu which is not shown is updated lazily in handleAboutToShow(),
+    // while a shown menu or a menu bar is updated in a deferred update, so
+    // that a bulk change costs only one update.
+    if (menuExist()
+        && (menu.isVisible() || ((menu.getStyle() & SWT.BAR) != 0))) {
+      MenuUpdateScheduler.getInstance(menu.getDisplay())
+                         .scheduleUpdate(this, false, false);
+    }
   }
 
   /**
@@ -962,85 +1063,27 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
           }
         }
 
-        // remove obsolete (removed or non active)
-        Item[] mi = getMenuItems();
-
-        for (final Item element : mi) {
-          final Object data = element.getData();
+        updateMenuItems(paginate(clean), force, recursive);
 
-          if ((data == null) || ! clean.contains(data)) {
-            element.dispose();
-          } else if ((data instanceof IContributionItem)
-              && ((IContributionItem) data).isDynamic()
-              && ((IContributionItem) data).isDirty()) {
-            element.dispose();
-          }
-        }
-
-        // add new
-        mi = getMenuItems();
-        int srcIx = 0;
-        int destIx = 0;
-
-        for (final Object element : clean) {
-          final IContributionItem src = (IContributionItem) element;
-          IContributionItem dest;
-
-          // get corresponding item in SWT widget
-          if (srcIx < mi.length) {
-            dest = (IContributionItem) mi[srcIx].getData();
-          } else {
-            dest = null;
-          }
-
-          if ((dest != null) && src.equals(dest)) {
-            srcIx++;
-            destIx++;
-          } else if ((dest != null) && dest.isSeparator() && src.isSeparator()) {
-            mi[srcIx].setData(src);
-            srcIx++;
-            destIx++;
-          } else {
-            final int start = getMenuItemCount();
-            doItemFill(src, destIx);
-            final int newItems = getMenuItemCount() - start;
-            for (int i = 0; i < newItems; i++) {
-              final Item item = getMenuItem(destIx++);
-              item.setData(src);
-            }
-          }
-
-          // May be we can optimize this call. If the menu has just
-          // been created via the call src.fill(fMenuBar, destIx) then
-          // the menu has already been updated with update(true)
-          // (see MenuManagerEx). So if force is true we do it again. But
-          // we can't set force to false since then information for the
-          // sub sub menus is lost.
-          if (recursive) {
-            IContributionItem item = src;
-            if (item instanceof SubContributionItem) {
-              item = ((SubContributionItem) item).getInnerItem();
-            }
-            if (item instanceof IMenuManager) {
-              ((IMenuManager) item).updateAll(force);
-            }
+        setDirty(false);
+        //  the pages shown at the moment are refreshed at once
+        for (final MenuManagerEx page : pages) {
+          if (page.menuExist() && page.menu.isVisible()) {
+            page.update(false, false);
           }
-
         }
-
-        // remove any old menu items not accounted for
-        for (; srcIx < mi.length; srcIx++) {
-          mi[srcIx].dispose();
-        }
-
-        setDirty(false);
       }
     } else {
       // I am not dirty. Check if I must recursivly walk down the hierarchy.
       if (recursive) {
         final IContributionItem[] items = getItems();
         for (final IContributionItem ci : items) {
-          if (ci instanceof IMenuManager) {
+          if (ci instanceof MenuManagerEx) {
+            final MenuManagerEx mm = (MenuManagerEx) ci;
+            if (isChildVisible(mm)) {
+              mm.updateSubMenu(force);
+            }
+          } else if (ci instanceof IMenuManager) {
             final IMenuManager mm = (IMenuManager) ci;
             if (isChildVisible(mm)) {
               mm.updateAll(force);
@@ -1052,13 +1095,258 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
     updateMenuItem();
   }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Synchronizes the items of the menu widget with the list of the active
+   * contribution items.
+   * <p>
+   * The existing menu items are indexed by the identity of the contribution
+   * items owning them. The items owned by removed contribution items are
+   * disposed; among the remaining ones, the items whose order forms the
+   * longest increasing subsequence of their new positions are kept, and only
+   * the others are moved, i.e., disposed and filled again at their new
+   * positions. Therefore updating a large menu after a few changes touches
+   * only the changed items.
    *
+   * @param clean
+   *          the list of the active contribution items, without double
+   *          separators.
+   * @param force
+   *          <code>true</code> means update even if not dirty, and
+   *          <code>false</code> for normal incremental updating
+   * @param recursive
+   *          <code>true</code> means recursively update all submenus, and
+   *          <code>false</code> means just this menu
+   */
+  private void updateMenuItems(List<IContributionItem> clean, boolean force,
+      boolean recursive) {
+    final int n = clean.size();
+    final Map<IContributionItem, Integer> positions =
+        new IdentityHashMap<IContributionItem, Integer>(n);
+    for (int i = 0; i < n; ++i) {
+      positions.put(clean.get(i), i);
+    }
+
+    // group the existing menu items by their contribution items, and remove
+    // obsolete ones (removed, non active, or dirty dynamic items)
+    final Item[] mi = getMenuItems();
+    final int[] groupPositions = new int[mi.length];
+    final int[] groupStarts = new int[mi.length + 1];
+    final Map<IContributionItem, Integer> groupOf =
+        new IdentityHashMap<IContributionItem, Integer>();
+    int groups = 0;
+    IContributionItem last = null;
+    for (int i = 0; i < mi.length; ++i) {
+      final Object data = mi[i].getData();
+      final Integer pos = (data instanceof IContributionItem)
+          ? positions.get(data) : null;
+      if ((pos == null)
+          || (((IContributionItem) data).isDynamic()
+              && ((IContributionItem) data).isDirty())) {
+        mi[i].dispose();
+        mi[i] = null;
+        continue;
+      }
+      final IContributionItem ci = (IContributionItem) data;
+      if (ci == last) {
+        continue;         // another widget of the same contribution item
+      }
+      if (groupOf.containsKey(ci)) {
+        mi[i].dispose();  // the widgets of an item must be contiguous
+        mi[i] = null;
+        continue;
+      }
+      groupOf.put(ci, groups);
+      groupPositions[groups] = pos;
+      groupStarts[groups] = i;
+      ++groups;
+      last = ci;
+    }
+    groupStarts[groups] = mi.length;
+
+    // keep the longest run of items already in the right order, and move
+    // the others
+    final boolean[] kept = IncreasingSubsequence.longest(groupPositions, groups);
+    final Map<IContributionItem, Integer> widgetCounts =
+        new IdentityHashMap<IContributionItem, Integer>(groups);
+    for (int g = 0; g < groups; ++g) {
+      final IContributionItem ci = clean.get(groupPositions[g]);
+      int count = 0;
+      for (int i = groupStarts[g]; i < groupStarts[g + 1]; ++i) {
+        if ((mi[i] != null) && (mi[i].getData() == ci)) {
+          if (kept[g]) {
+            ++count;
+          } else {
+            mi[i].dispose();
+          }
+        }
+      }
+      if (kept[g]) {
+        widgetCounts.put(ci, count);
+      }
+    }
+
+    // add new and moved items
+    int destIx = 0;
+    for (final IContributionItem src : clean) {
+      final Integer count = widgetCounts.get(src);
+      if (count != null) {
+        destIx += count;
+      } else {
+        final int start = getMenuItemCount();
+        doItemFill(src, destIx);
+        final int newItems = getMenuItemCount() - start;
+        for (int i = 0; i < newItems; i++) {
+          final Item item = getMenuItem(destIx++);
+          item.setData(src);
+        }
+      }
+
+      // May be we can optimize this call. If the menu has just
+      // been created via the call src.fill(fMenuBar, destIx) then
+      // the menu has already been updated with update(true)
+      // (see MenuManagerEx). So if force is true we do it again. But
+      // we can't set force to false since then information for the
+      // sub sub menus is lost.
+      if (recursive) {
+        IContributionItem item = src;
+        if (item instanceof SubContributionItem) {
+          item = ((SubContributionItem) item).getInnerItem();
+        }
+        if (item instanceof MenuManagerEx) {
+          ((MenuManagerEx) item).updateSubMenu(force);
+        } else if (item instanceof IMenuManager) {
+          ((IMenuManager) item).updateAll(force);
+        }
+      }
+    }
+  }
+
+  /**
+   * Updates this menu as a sub-menu in the recursive update of its parent.
+   * <p>
+   * A lazy sub-menu which is not shown is not updated, and the update is
+   * postponed until it is shown.
+   *
+   * @param force
+   *          <code>true</code> means update even if not dirty, and
+   *          <code>false</code> for normal incremental updating
+   */
+  private void updateSubMenu(boolean force) {
+    if (isLazy() && menuExist() && (! menu.isVisible())) {
+      forceOnShow |= force;
+      if ((menu.getItemCount() == 0) && isVisible()) {
+        // Some platforms never open an empty menu, so a never populated menu
+        // gets a disabled placeholder, which is removed when the menu is
+        // populated since it does not belong to any contribution item.
+        final MenuItem placeholder = new MenuItem(menu, SWT.NONE);
+        placeholder.setEnabled(false);
+        forceOnShow = true;
+      }
+      updateMenuItem();
+    } else {
+      update(force, true);
+    }
+  }
+
+  /**
+   * Splits the active contribution items of this menu into pages.
+   * <p>
+   * The pages are assigned their items before this menu is filled, so that
+   * an item moved from a page to this menu has no more widget in the page.
+   *
+   * @param clean
+   *          the list of the active contribution items, without double
+   *          separators.
+   * @return the list of the contribution items to be shown in this menu,
+   *         which is the first page of the items followed by the sub-menu of
+   *         the next page, if any.
+   */
+  private List<IContributionItem> paginate(List<IContributionItem> clean) {
+    final int n = clean.size();
+    if ((pageSize <= 0) || (n <= pageSize)) {
+      disposePages(0);
+      return clean;
+    }
+    final int count = (n - 1) / pageSize;     // the number of extra pages
+    disposePages(count);
+    while (pages.size() < count) {
+      final MenuPage page = new MenuPage();
+      page.setParent(this);
+      pages.add(page);
+    }
+    for (int k = 0; k < count; ++k) {
+      final int from = (k + 1) * pageSize;
+      final int to = Math.min(from + pageSize, n);
+      final List<IContributionItem> items =
+          new ArrayList<IContributionItem>(clean.subList(from, to));
+      if ((k + 1) < count) {
+        items.add(pages.get(k + 1));
+      }
+      pages.get(k).setPageItems(items);
+    }
+    final List<IContributionItem> result =
+        new ArrayList<IContributionItem>(clean.subList(0, pageSize));
+    result.add(pages.get(0));
+    return result;
+  }
+
+  /**
+   * Disposes the pages of this menu from the specified index.
+   *
+   * @param from
+   *          the index of the first page to be disposed.
+   */
+  private void disposePages(int from) {
+    while (pages.size() > from) {
+      final MenuManagerEx page = pages.remove(pages.size() - 1);
+      page.disposeMenu();
+    }
+  }
+
+  /**
+   * Disposes the menu control and the menu item widget of this menu.
+   */
+  private void disposeMenu() {
+    if (menuExist()) {
+      menu.dispose();
+    }
+    menu = null;
+
+    if (menuItem != null) {
+      menuItem.dispose();
+      menuItem = null;
+    }
+  }
+
+  /**
+   * Updates a property of the items of this menu.
+   * <p>
+   * If the menu control is realized, the update is deferred and coalesced by
+   * the {@link MenuUpdateScheduler}.
+   *
+   * @param property
+   *          the name of the property to be updated, or <code>null</code> to
+   *          update all properties.
    * @see org.eclipse.jface.action.IContributionItem#update(java.lang.String)
    */
   @Override
   public void update(String property) {
+    if (menuExist()) {
+      MenuUpdateScheduler.getInstance(menu.getDisplay())
+                         .scheduleUpdate(this, property);
+    } else {
+      updateProperty(property);
+    }
+  }
+
+  /**
+   * Updates a property of the items of this menu immediately.
+   *
+   * @param property
+   *          the name of the property to be updated, or <code>null</code> to
+   *          update all properties.
+   */
+  void updateProperty(String property) {
     final IContributionItem items[] = getItems();
 
     for (final IContributionItem item : items) {
@@ -1127,14 +1415,35 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
     }
   }
 
-  /*
-   * (non-Javadoc)
+  /**
+   * Incrementally builds this menu and all of its sub-menus.
+   * <p>
+   * If the menu control is realized, the update is deferred and coalesced by
+   * the {@link MenuUpdateScheduler}.
    *
+   * @param force
+   *          <code>true</code> means update even if not dirty, and
+   *          <code>false</code> for normal incremental updating
    * @see org.eclipse.jface.action.IMenuManager#updateAll(boolean)
    */
   @Override
   public void updateAll(boolean force) {
-    update(force, true);
+    if (menuExist()) {
+      MenuUpdateScheduler.getInstance(menu.getDisplay())
+                         .scheduleUpdate(this, force, true);
+    } else {
+      update(force, true);
+    }
+  }
+
+  /**
+   * Performs the pending deferred updates of all menus of the display
+   * immediately.
+   */
+  public void flushUpdates() {
+    if (menuExist()) {
+      MenuUpdateScheduler.getInstance(menu.getDisplay()).flush();
+    }
   }
 
   /**
@@ -1189,11 +1498,12 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
    *
    * @param action
    *          the action to be added.
+   * @return the contribution item created for the action.
    * @see #isShowImage()
    * @see #setShowImage(boolean)
    * @author Haixing Hu
    */
-  public void add(ActionEx action) {
+  public ActionContributionItemEx add(ActionEx action) {
     if (action == null) {
       SWT.error(SWT.ERROR_NULL_ARGUMENT);
     }
@@ -1203,5 +1513,54 @@ public class MenuManagerEx extends ContributionManager implements IMenuManager {
       item.setShowImage(false);
     }
     super.add(item);
+    return item;
+  }
+
+  /**
+   * A page of a paged menu, holding a slice of the contribution items of its
+   * owner. The page is not the parent of its items, so the items are never
+   * re-parented when they move between the pages.
+   */
+  private static final class MenuPage extends MenuManagerEx {
+
+    private List<IContributionItem> pageItems = new ArrayList<IContributionItem>();
+
+    MenuPage() {
+      super(Messages.getInstance().get("menu.more"));
+    }
+
+    /**
+     * Sets the items of this page, and disposes the widgets of the items
+     * leaving this page.
+     *
+     * @param items
+     *          the new items of this page.
+     */
+    void setPageItems(List<IContributionItem> items) {
+      if (menuExist()) {
+        final Map<IContributionItem, Boolean> retained =
+            new IdentityHashMap<IContributionItem, Boolean>(items.size());
+        for (final IContributionItem item : items) {
+          retained.put(item, Boolean.TRUE);
+        }
+        for (final Item mi : getMenuItems()) {
+          if (! retained.containsKey(mi.getData())) {
+            mi.dispose();
+          }
+        }
+      }
+      pageItems = items;
+      setDirty(true);
+    }
+
+    @Override
+    public IContributionItem[] getItems() {
+      return pageItems.toArray(new IContributionItem[pageItems.size()]);
+    }
+
+    @Override
+    public boolean isLazy() {
+      return true;
+    }
   }
 }
\ No newline at end of file
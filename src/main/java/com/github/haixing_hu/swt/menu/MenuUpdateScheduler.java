@@ -0,0 +1,254 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.menu;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.action.IContributionManager;
+import org.eclipse.swt.widgets.Display;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the pending updates of the {@link MenuManagerEx}s of a display, and
+ * performs them once per turn of the event loop.
+ * <p>
+ * The updates requested during a turn of the event loop are merged per menu
+ * manager, and flushed by a single {@link Display#asyncExec(Runnable)}, or
+ * earlier when a menu is about to be shown. The flush walks the menu
+ * hierarchy only once: the managers are updated from the top down, and a
+ * manager already covered by the recursive update of one of its ancestors is
+ * not updated again. Therefore a bulk change of the states of N actions costs
+ * one update instead of N.
+ * <p>
+ * The instances of this class must be accessed in the UI thread of its
+ * display.
+ *
+ * @author Haixing Hu
+ */
+public final class MenuUpdateScheduler {
+
+  private static final String DATA_KEY = MenuUpdateScheduler.class.getName();
+
+  /**
+   * The maximum number of rounds of a flush, used to stop the updates which
+   * keep scheduling other updates.
+   */
+  private static final int MAX_FLUSH_ROUNDS = 8;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(MenuUpdateScheduler.class);
+
+  /**
+   * Gets the menu update scheduler of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the menu update scheduler of the specified display.
+   */
+  public static MenuUpdateScheduler getInstance(final Display display) {
+    MenuUpdateScheduler scheduler = (MenuUpdateScheduler) display.getData(DATA_KEY);
+    if (scheduler == null) {
+      scheduler = new MenuUpdateScheduler(display);
+      display.setData(DATA_KEY, scheduler);
+    }
+    return scheduler;
+  }
+
+  private final Display display;
+  private final Map<MenuManagerEx, Request> pending;
+  private final Runnable flusher;
+  private boolean scheduled;
+  private boolean flushing;
+
+  private MenuUpdateScheduler(final Display display) {
+    this.display = display;
+    this.pending = new LinkedHashMap<MenuManagerEx, Request>();
+    this.flusher = new Runnable() {
+      @Override
+      public void run() {
+        scheduled = false;
+        flush();
+      }
+    };
+    this.scheduled = false;
+    this.flushing = false;
+  }
+
+  /**
+   * Schedules an update of the items of a menu manager.
+   *
+   * @param manager
+   *          the menu manager to be updated.
+   * @param force
+   *          <code>true</code> means update even if not dirty, and
+   *          <code>false</code> for normal incremental updating
+   * @param recursive
+   *          <code>true</code> means recursively update all submenus, and
+   *          <code>false</code> means just this menu
+   */
+  void scheduleUpdate(MenuManagerEx manager, boolean force, boolean recursive) {
+    final Request request = getRequest(manager);
+    request.update = true;
+    request.force |= force;
+    request.recursive |= recursive;
+  }
+
+  /**
+   * Schedules an update of a property of the items of a menu manager.
+   *
+   * @param manager
+   *          the menu manager to be updated.
+   * @param property
+   *          the name of the property to be updated, or <code>null</code> to
+   *          update all properties.
+   */
+  void scheduleUpdate(MenuManagerEx manager, String property) {
+    final Request request = getRequest(manager);
+    if (property == null) {
+      request.allProperties = true;
+      request.properties.clear();
+    } else if (! request.allProperties) {
+      request.properties.add(property);
+    }
+  }
+
+  /**
+   * Tests whether there are pending updates.
+   *
+   * @return <code>true</code> if there are pending updates; <code>false</code>
+   *         otherwise.
+   */
+  public boolean hasPendingUpdates() {
+    return ! pending.isEmpty();
+  }
+
+  /**
+   * Performs all the pending updates immediately.
+   */
+  public void flush() {
+    if (flushing) {
+      return;
+    }
+    flushing = true;
+    try {
+      for (int round = 0; (round < MAX_FLUSH_ROUNDS) && (! pending.isEmpty()); ++round) {
+        final List<Map.Entry<MenuManagerEx, Request>> entries =
+            new ArrayList<Map.Entry<MenuManagerEx, Request>>(pending.entrySet());
+        pending.clear();
+        flush(entries);
+      }
+      if (! pending.isEmpty()) {
+        LOGGER.warn("{} menu update(s) keep being rescheduled.", pending.size());
+        schedule();
+      }
+    } finally {
+      flushing = false;
+    }
+  }
+
+  private void flush(List<Map.Entry<MenuManagerEx, Request>> entries) {
+    LOGGER.trace("Flushing {} menu update(s).", entries.size());
+    //  update from the top down, so that a recursive update of an ancestor
+    //  covers the pending updates of its descendants.
+    final Map<MenuManagerEx, Integer> depths = new IdentityHashMap<MenuManagerEx, Integer>();
+    for (final Map.Entry<MenuManagerEx, Request> entry : entries) {
+      depths.put(entry.getKey(), getDepth(entry.getKey()));
+    }
+    Collections.sort(entries, new Comparator<Map.Entry<MenuManagerEx, Request>>() {
+      @Override
+      public int compare(Map.Entry<MenuManagerEx, Request> e1,
+          Map.Entry<MenuManagerEx, Request> e2) {
+        return depths.get(e1.getKey()) - depths.get(e2.getKey());
+      }
+    });
+    final Map<MenuManagerEx, Boolean> covered = new IdentityHashMap<MenuManagerEx, Boolean>();
+    for (final Map.Entry<MenuManagerEx, Request> entry : entries) {
+      final MenuManagerEx manager = entry.getKey();
+      final Request request = entry.getValue();
+      if (request.update && (! isCovered(manager, request.force, covered))) {
+        manager.update(request.force, request.recursive);
+        if (request.recursive) {
+          covered.put(manager, request.force);
+        }
+      }
+      if (request.allProperties) {
+        manager.updateProperty(null);
+      } else {
+        for (final String property : request.properties) {
+          manager.updateProperty(property);
+        }
+      }
+    }
+  }
+
+  private Request getRequest(MenuManagerEx manager) {
+    Request request = pending.get(manager);
+    if (request == null) {
+      request = new Request();
+      pending.put(manager, request);
+      schedule();
+    }
+    return request;
+  }
+
+  private void schedule() {
+    if ((! scheduled) && (! display.isDisposed())) {
+      scheduled = true;
+      display.asyncExec(flusher);
+    }
+  }
+
+  private static int getDepth(MenuManagerEx manager) {
+    int depth = 0;
+    IContributionManager parent = manager.getParent();
+    while (parent instanceof MenuManagerEx) {
+      ++depth;
+      parent = ((MenuManagerEx) parent).getParent();
+    }
+    return depth;
+  }
+
+  private static boolean isCovered(MenuManagerEx manager, boolean force,
+      Map<MenuManagerEx, Boolean> covered) {
+    IContributionManager parent = manager.getParent();
+    while (parent instanceof MenuManagerEx) {
+      final Boolean ancestorForce = covered.get(parent);
+      if ((ancestorForce != null) && (ancestorForce || (! force))) {
+        return true;
+      }
+      parent = ((MenuManagerEx) parent).getParent();
+    }
+    return false;
+  }
+
+  /**
+   * The merged pending updates of a menu manager.
+   */
+  private static final class Request {
+    boolean update = false;
+    boolean force = false;
+    boolean recursive = false;
+    boolean allProperties = false;
+    final Set<String> properties = new LinkedHashSet<String>();
+  }
+}
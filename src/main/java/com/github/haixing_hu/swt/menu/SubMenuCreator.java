@@ -14,10 +14,14 @@
 
 package com.github.haixing_hu.swt.menu;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.eclipse.jface.action.IContributionItem;
 import org.eclipse.jface.action.IMenuCreator;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Control;
@@ -25,12 +29,22 @@ import org.eclipse.swt.widgets.Menu;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.haixing_hu.swt.action.ActionContributionItemEx;
 import com.github.haixing_hu.swt.action.ActionEx;
+import com.github.haixing_hu.swt.action.ConcurrentActionManager;
 import com.github.haixing_hu.swt.action.IActionManager;
 import com.github.haixing_hu.swt.toolbar.Separator;
 
 /**
  * A {@link IMenuCreator} which create a sub-menu.
+ * <p>
+ * The creator maintains an index from the ID of a sub-action to the
+ * contribution items displaying it in the sub-menus, so the items could be
+ * found without searching the menus.
+ * <p>
+ * If the action manager is a {@link ConcurrentActionManager}, the contribution
+ * items created for the sub-actions are registered to its reverse index, and
+ * unregistered when this creator is disposed.
  *
  * @author Haixing Hu
  */
@@ -40,6 +54,7 @@ public class SubMenuCreator implements IMenuCreator {
   private final String[] subActionIds;
   private final boolean showImage;
   private final Map<Object, MenuManagerEx> subMenuCache;
+  private final Map<String, List<ActionContributionItemEx>> itemIndex;
   private final Logger logger;
 
   /**
@@ -63,6 +78,7 @@ public class SubMenuCreator implements IMenuCreator {
     this.subActionIds = subActionIds;
     this.showImage = showImage;
     subMenuCache = new HashMap<Object, MenuManagerEx>();
+    itemIndex = new HashMap<String, List<ActionContributionItemEx>>();
     logger = LoggerFactory.getLogger(SubMenuCreator.class);
   }
 
@@ -70,9 +86,18 @@ public class SubMenuCreator implements IMenuCreator {
   public void dispose() {
     for (final Map.Entry<Object, MenuManagerEx> entry : subMenuCache.entrySet()) {
       final MenuManagerEx menuManager = entry.getValue();
+      if (actionManager instanceof ConcurrentActionManager) {
+        final ConcurrentActionManager cam = (ConcurrentActionManager) actionManager;
+        for (final IContributionItem item : menuManager.getItems()) {
+          if (item instanceof ActionContributionItemEx) {
+            cam.removeItem(item.getId(), item);
+          }
+        }
+      }
       menuManager.dispose();
     }
     subMenuCache.clear();
+    itemIndex.clear();
   }
 
   @Override
@@ -112,6 +137,23 @@ public class SubMenuCreator implements IMenuCreator {
     return subMenuCache.values();
   }
 
+  /**
+   * Gets the contribution items displaying a sub-action in all the menus
+   * created by this creator.
+   *
+   * @param id
+   *          the ID of the sub-action.
+   * @return an unmodifiable list of the contribution items displaying the
+   *         sub-action, one per menu, which is empty if no menu displays it.
+   */
+  public List<ActionContributionItemEx> getItems(String id) {
+    final List<ActionContributionItemEx> items = itemIndex.get(id);
+    if (items == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(items);
+  }
+
   private void addActions(MenuManagerEx menuManager) {
     for (final String id : subActionIds) {
       if (id.equals(Separator.ID)) {
@@ -121,7 +163,16 @@ public class SubMenuCreator implements IMenuCreator {
         final ActionEx action = actionManager.get(id);
         if (action != null) {
           logger.trace("Adding an action to the sub-menu: {}", id);
-          menuManager.add(action);
+          final ActionContributionItemEx item = menuManager.add(action);
+          List<ActionContributionItemEx> items = itemIndex.get(id);
+          if (items == null) {
+            items = new ArrayList<ActionContributionItemEx>();
+            itemIndex.put(id, items);
+          }
+          items.add(item);
+          if (actionManager instanceof ConcurrentActionManager) {
+            ((ConcurrentActionManager) actionManager).addItem(id, item);
+          }
         } else {
           logger.error("Cannot found the action in the action manager: {}", id);
         }
@@ -16,6 +16,8 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Display;
 
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+
 /**
  * Instances of this class represent a star displayed by the StarRating component.
  *
@@ -23,7 +25,7 @@ import org.eclipse.swt.widgets.Display;
  * @author Haixing Hu
  */
 class Star {
-  private static final String STAR_FOLDER = "images/stars/";
+  private static final String STAR_FOLDER = "/images/stars/";
 	private static final String SMALL_STAR_MARKED_FOCUS = STAR_FOLDER + "mark-focus16.png";
 	private static final String SMALL_STAR_MARKED = STAR_FOLDER + "mark16.png";
 	private static final String SMALL_STAR_FOCUS = STAR_FOLDER + "focus16.png";
@@ -43,28 +45,68 @@ class Star {
 	private final StarRating parent;
 
   Star(final StarRating parent) {
-    final Display dis = Display.getCurrent();
-    final ClassLoader cl = this.getClass().getClassLoader();
+    //  the images are shared by all stars and cached by the SWTResourceManager,
+    //  which also resolves their HiDPI variants.
+    final Display dis = parent.getDisplay();
     this.parent = parent;
 
     if (parent.getSizeOfStars() == StarRating.Size.BIG) {
-      defaultImage = new Image(dis, cl.getResourceAsStream(BIG_STAR));
-      hoverImage = new Image(dis, cl.getResourceAsStream(BIG_STAR_FOCUS));
-      selectedImage = new Image(dis, cl.getResourceAsStream(BIG_STAR_MARKED));
-      selectedHoverImage = new Image(dis, cl.getResourceAsStream(BIG_STAR_MARKED_FOCUS));
+      defaultImage = SWTResourceManager.getImage(dis, Star.class, BIG_STAR);
+      hoverImage = SWTResourceManager.getImage(dis, Star.class, BIG_STAR_FOCUS);
+      selectedImage = SWTResourceManager.getImage(dis, Star.class, BIG_STAR_MARKED);
+      selectedHoverImage = SWTResourceManager.getImage(dis, Star.class, BIG_STAR_MARKED_FOCUS);
+    } else {
+      defaultImage = SWTResourceManager.getImage(dis, Star.class, SMALL_STAR);
+      hoverImage = SWTResourceManager.getImage(dis, Star.class, SMALL_STAR_FOCUS);
+      selectedImage = SWTResourceManager.getImage(dis, Star.class, SMALL_STAR_MARKED);
+      selectedHoverImage = SWTResourceManager.getImage(dis, Star.class, SMALL_STAR_MARKED_FOCUS);
+    }
+  }
+
+  /**
+   * Gets the shared image of a star in the specified state.
+   * <p>
+   * The images are cached by the {@link SWTResourceManager}, so that all the
+   * stars and the cell renderers of a display share the same images.
+   *
+   * @param display
+   *          the display.
+   * @param size
+   *          the size of the star.
+   * @param enabled
+   *          whether the star is enabled.
+   * @param marked
+   *          whether the star is marked.
+   * @param hover
+   *          whether the star is hovered.
+   * @return the image of a star in the specified state.
+   */
+  static Image getImage(final Display display, final StarRating.Size size,
+      final boolean enabled, final boolean marked, final boolean hover) {
+    final boolean big = (size == StarRating.Size.BIG);
+    final String path;
+    if (! enabled) {
+      path = (big ? BIG_STAR : SMALL_STAR);
+    } else if (marked) {
+      if (hover) {
+        path = (big ? BIG_STAR_MARKED_FOCUS : SMALL_STAR_MARKED_FOCUS);
+      } else {
+        path = (big ? BIG_STAR_MARKED : SMALL_STAR_MARKED);
+      }
+    } else if (hover) {
+      path = (big ? BIG_STAR_FOCUS : SMALL_STAR_FOCUS);
     } else {
-      defaultImage = new Image(dis, cl.getResourceAsStream(SMALL_STAR));
-      hoverImage = new Image(dis, cl.getResourceAsStream(SMALL_STAR_FOCUS));
-      selectedImage = new Image(dis, cl.getResourceAsStream(SMALL_STAR_MARKED));
-      selectedHoverImage = new Image(dis, cl.getResourceAsStream(SMALL_STAR_MARKED_FOCUS));
+      path = (big ? BIG_STAR : SMALL_STAR);
     }
+    return SWTResourceManager.getImage(display, Star.class, path);
   }
 
 	void dispose() {
-		this.defaultImage.dispose();
-		this.hoverImage.dispose();
-		this.selectedImage.dispose();
-		this.selectedHoverImage.dispose();
+	  //  the shared images are owned by the SWTResourceManager
+		this.defaultImage = null;
+		this.hoverImage = null;
+		this.selectedImage = null;
+		this.selectedHoverImage = null;
 	}
 
 	void draw(final GC gc, final int x, final int y) {
@@ -20,6 +20,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Event;
@@ -71,6 +72,7 @@ public class StarRating extends Canvas {
   private final Star stars[];
   private final List<SelectionListener> selectionListeners;
   private int currentNumberOfStars;
+  private int hoverIndex;
 
   /**
    * Constructs a new instance of this class given its parent and a style value
@@ -152,6 +154,7 @@ public class StarRating extends Canvas {
     stars = new Star[maxNumberOfStars];
     selectionListeners = new ArrayList<SelectionListener>();
     currentNumberOfStars = 0;
+    hoverIndex = - 1;
 
     initStars();
     initListeners();
@@ -207,49 +210,119 @@ public class StarRating extends Canvas {
   }
 
   private void onMouseEnterOrMove(final Event event) {
-    for (final Star star : stars) {
-      star.hover = false;
+    final int index = getStarIndex(event.x, event.y);
+    //  the stars are all hovered if the mouse is not over any of them
+    setHoverIndex(index < 0 ? maxNumberOfStars - 1 : index);
+  }
+
+  private void onMouseExit(final Event event) {
+    setHoverIndex(- 1);
+  }
+
+  /**
+   * Sets the index of the hovered star, which is the highest one of the
+   * highlighted stars.
+   * <p>
+   * Nothing is repainted if the index does not change, which is the case of
+   * most mouse move events. Otherwise only the stars whose highlight changes
+   * are invalidated, and the paint is left to the event loop, so that the
+   * paints of the successive mouse move events are coalesced.
+   *
+   * @param index
+   *          the index of the hovered star, or -1 if no star is hovered.
+   */
+  private void setHoverIndex(final int index) {
+    if (index == hoverIndex) {
+      return;
+    }
+    final int low = Math.min(index, hoverIndex) + 1;
+    final int high = Math.max(index, hoverIndex);
+    for (int i = low; i <= high; ++i) {
+      stars[i].hover = (i <= index);
     }
+    hoverIndex = index;
+    redrawStars(low, high);
+  }
 
-    for (final Star star : stars) {
-      final boolean mouseHover = star.bounds.contains(event.x, event.y);
-      star.hover = true;
-      if (mouseHover) {
-        break;
+  private void onMouseUp(final Event event) {
+    final int i = getStarIndex(event.x, event.y);
+    if (i >= 0) {
+      // modified by Haixing Hu.
+      // check whether this star is the highest selected star
+      if ((i + 1) == currentNumberOfStars) {
+        // if this star is the highest selected star, click on it will deselect it.
+        setCurrentNumberOfStars(i);
+      } else {
+        //  otherwise, click on it will select it and all stars below it, and
+        //  deselect all starts above it.
+        setCurrentNumberOfStars(i + 1);
       }
+      fireSelectionEvent();
     }
-    redraw();
-    update();
   }
 
-  private void onMouseExit(final Event event) {
-    for (final Star star : stars) {
-      star.hover = false;
+  private int getStarSize() {
+    return getStarSize(sizeOfStars);
+  }
+
+  /**
+   * Gets the width and height of a star of the specified size.
+   *
+   * @param size
+   *          the size of the star.
+   * @return the width and height of a star of the specified size, in pixels.
+   */
+  static int getStarSize(final Size size) {
+    return size.equals(Size.BIG) ? SIZE_BIG : SIZE_SMALL;
+  }
+
+  /**
+   * Gets the index of the star at the given point.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return the index of the star at the given point, or -1 if there is no
+   *         star at that point.
+   */
+  private int getStarIndex(final int x, final int y) {
+    final int size = getStarSize();
+    if ((x < 0) || (y < 0)) {
+      return - 1;
+    }
+    final int along = (orientation == SWT.VERTICAL ? y : x);
+    final int across = (orientation == SWT.VERTICAL ? x : y);
+    if (across >= size) {
+      return - 1;
     }
-    redraw();
-    update();
+    final int index = along / size;
+    return (index < maxNumberOfStars ? index : - 1);
   }
 
-  private void onMouseUp(final Event event) {
-    for (int i = 0; i < maxNumberOfStars; i++) {
-      final Star star = stars[i];
-      final boolean selected = star.bounds.contains(event.x, event.y);
-      if (selected) {
-        // modified by Haixing Hu.
-        // check whether this star is the highest selected star
-        if ((i + 1) == currentNumberOfStars) {
-          // if this star is the highest selected star, click on it will deselect it.
-          setCurrentNumberOfStars(i);
-        } else {
-          //  otherwise, click on it will select it and all stars below it, and
-          //  deselect all starts above it.
-          setCurrentNumberOfStars(i + 1);
-        }
-        fireSelectionEvent();
-        redraw();
-        update();
-        break;
-      }
+  /**
+   * Gets the bounds of a range of stars.
+   *
+   * @param low
+   *          the index of the first star of the range.
+   * @param high
+   *          the index of the last star of the range.
+   * @return the bounds of the stars in the specified range.
+   */
+  private Rectangle getStarsBounds(final int low, final int high) {
+    final int size = getStarSize();
+    final int length = ((high - low) + 1) * size;
+    if (orientation == SWT.VERTICAL) {
+      return new Rectangle(0, low * size, size, length);
+    } else {
+      return new Rectangle(low * size, 0, length, size);
+    }
+  }
+
+  private void redrawStars(final int low, final int high) {
+    if (low <= high) {
+      final Rectangle rect = getStarsBounds(low, high);
+      redraw(rect.x, rect.y, rect.width, rect.height, false);
     }
   }
 
@@ -266,14 +339,13 @@ public class StarRating extends Canvas {
 
   private void onMousePaint(final Event event) {
     final GC gc = event.gc;
-    int x = 0, y = 0;
-
-    for (final Star star : stars) {
-      star.draw(gc, x, y);
-      if (orientation == SWT.VERTICAL) {
-        y += sizeOfStars.equals(Size.BIG) ? SIZE_BIG : SIZE_SMALL;
-      } else {
-        x += sizeOfStars.equals(Size.BIG) ? SIZE_BIG : SIZE_SMALL;
+    final Rectangle damaged = new Rectangle(event.x, event.y, event.width,
+        event.height);
+    for (int i = 0; i < maxNumberOfStars; ++i) {
+      final Rectangle rect = getStarsBounds(i, i);
+      //  only the stars in the damaged area are drawn
+      if (rect.intersects(damaged)) {
+        stars[i].draw(gc, rect.x, rect.y);
       }
     }
   }
@@ -459,6 +531,8 @@ public class StarRating extends Canvas {
     if ((currentNumberOfStars < 0) || (currentNumberOfStars > maxNumberOfStars)) {
       SWT.error(SWT.ERROR_INVALID_ARGUMENT);
     }
+    final int low = Math.min(currentNumberOfStars, this.currentNumberOfStars);
+    final int high = Math.max(currentNumberOfStars, this.currentNumberOfStars);
     this.currentNumberOfStars = currentNumberOfStars;
     for (int i = 0; i < currentNumberOfStars; ++i) {
       stars[i].marked = true;
@@ -466,5 +540,7 @@ public class StarRating extends Canvas {
     for (int i = currentNumberOfStars; i < maxNumberOfStars; ++i) {
       stars[i].marked = false;
     }
+    //  only the stars whose mark changed are repainted
+    redrawStars(low, high - 1);
   }
 }
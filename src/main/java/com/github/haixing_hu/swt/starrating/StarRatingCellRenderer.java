@@ -0,0 +1,437 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.starrating;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.events.SelectionListener;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Item;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+/**
+ * A windowless renderer painting star ratings in a column of a {@link Table}
+ * or a {@link Tree}.
+ * <p>
+ * Unlike the {@link StarRating} control, this renderer does not create any
+ * native widget for the rows. It paints the stars of a row in the
+ * <code>SWT.PaintItem</code> events of the host, and handles the hovering and
+ * the click-to-rate behavior through the mouse events of the host. Therefore
+ * one renderer serves any number of rows, and all the rows share the same star
+ * images.
+ * <p>
+ * The rating of a row is stored in the data of its item, and could be accessed
+ * by {@link #getRating(Item)} and {@link #setRating(Item, int)}. Clicking a
+ * star changes the rating with the same behavior as the {@link StarRating}
+ * control, and notifies the selection listeners of this renderer with the
+ * clicked item as the <code>item</code> of the event.
+ *
+ * @author Haixing Hu
+ */
+public class StarRatingCellRenderer {
+
+  /**
+   * The key of the data of an item storing its rating.
+   */
+  public static final String RATING_KEY = StarRatingCellRenderer.class
+      .getName() + ".rating";
+
+  private static final int MARGIN = 2;
+
+  private final Control host;
+  private final int column;
+  private final StarRating.Size sizeOfStars;
+  private final int maxNumberOfStars;
+  private final List<SelectionListener> selectionListeners;
+  private final Listener listener;
+  private Item hoverItem;
+  private int hoverIndex;
+
+  /**
+   * Constructs a renderer painting the star ratings in a column of a table or
+   * a tree.
+   *
+   * @param host
+   *          the {@link Table} or {@link Tree} in which to paint the ratings.
+   * @param column
+   *          the index of the column in which to paint the ratings.
+   * @param sizeOfStars
+   *          the size of the stars.
+   * @param maxNumberOfStars
+   *          the maximum number of stars.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the host or the size is null</li>
+   *              <li>ERROR_INVALID_ARGUMENT - if the host is neither a table
+   *              nor a tree, or the column or the maximum number of stars is
+   *              negative</li>
+   *              </ul>
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the host has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the host</li>
+   *              </ul>
+   */
+  public StarRatingCellRenderer(final Control host, final int column,
+      final StarRating.Size sizeOfStars, final int maxNumberOfStars) {
+    if ((host == null) || (sizeOfStars == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (! ((host instanceof Table) || (host instanceof Tree))
+        || (column < 0) || (maxNumberOfStars < 0)) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    this.host = host;
+    this.column = column;
+    this.sizeOfStars = sizeOfStars;
+    this.maxNumberOfStars = maxNumberOfStars;
+    this.selectionListeners = new ArrayList<SelectionListener>();
+    this.hoverItem = null;
+    this.hoverIndex = - 1;
+    this.listener = new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        switch (event.type) {
+        case SWT.MeasureItem:
+          onMeasureItem(event);
+          break;
+        case SWT.PaintItem:
+          onPaintItem(event);
+          break;
+        case SWT.MouseMove:
+          onMouseMove(event);
+          break;
+        case SWT.MouseExit:
+          setHover(null, - 1);
+          break;
+        case SWT.MouseUp:
+          onMouseUp(event);
+          break;
+        }
+      }
+    };
+    for (final int type : new int[] { SWT.MeasureItem, SWT.PaintItem,
+        SWT.MouseMove, SWT.MouseExit, SWT.MouseUp }) {
+      host.addListener(type, listener);
+    }
+  }
+
+  /**
+   * Gets the host of this renderer.
+   *
+   * @return the {@link Table} or {@link Tree} in which this renderer paints.
+   */
+  public Control getHost() {
+    return host;
+  }
+
+  /**
+   * Gets the index of the column in which this renderer paints.
+   *
+   * @return the index of the column in which this renderer paints.
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * Gets the size of the stars.
+   *
+   * @return the size of the stars.
+   */
+  public StarRating.Size getSizeOfStars() {
+    return sizeOfStars;
+  }
+
+  /**
+   * Gets the maximum number of stars.
+   *
+   * @return the maximum number of stars.
+   */
+  public int getMaxNumberOfStars() {
+    return maxNumberOfStars;
+  }
+
+  /**
+   * Gets the rating of an item.
+   *
+   * @param item
+   *          a table item or a tree item of the host.
+   * @return the rating of the item, which is zero if the item has not been
+   *         rated.
+   */
+  public int getRating(final Item item) {
+    if (item == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    final Object rating = item.getData(RATING_KEY);
+    return (rating instanceof Integer ? ((Integer) rating).intValue() : 0);
+  }
+
+  /**
+   * Sets the rating of an item, and repaints its cell.
+   *
+   * @param item
+   *          a table item or a tree item of the host.
+   * @param rating
+   *          the new rating of the item.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the item is null</li>
+   *              <li>ERROR_INVALID_ARGUMENT - if the rating is negative or
+   *              greater than the maximum number of stars</li>
+   *              </ul>
+   */
+  public void setRating(final Item item, final int rating) {
+    if (item == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if ((rating < 0) || (rating > maxNumberOfStars)) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    if (getRating(item) != rating) {
+      item.setData(RATING_KEY, Integer.valueOf(rating));
+      redrawCell(item);
+    }
+  }
+
+  /**
+   * Adds the listener to the collection of listeners who will be notified when
+   * the rating of an item is changed by the user.
+   *
+   * @param listener
+   *          the listener which should be notified.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the listener is null</li>
+   *              </ul>
+   */
+  public void addSelectionListener(final SelectionListener listener) {
+    if (listener == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    selectionListeners.add(listener);
+  }
+
+  /**
+   * Removes the listener from the collection of listeners who will be notified
+   * when the rating of an item is changed by the user.
+   *
+   * @param listener
+   *          the listener which should no longer be notified.
+   * @exception IllegalArgumentException
+   *              <ul>
+   *              <li>ERROR_NULL_ARGUMENT - if the listener is null</li>
+   *              </ul>
+   */
+  public void removeSelectionListener(final SelectionListener listener) {
+    if (listener == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    selectionListeners.remove(listener);
+  }
+
+  /**
+   * Detaches this renderer from its host.
+   */
+  public void dispose() {
+    if (! host.isDisposed()) {
+      for (final int type : new int[] { SWT.MeasureItem, SWT.PaintItem,
+          SWT.MouseMove, SWT.MouseExit, SWT.MouseUp }) {
+        host.removeListener(type, listener);
+      }
+    }
+    selectionListeners.clear();
+    hoverItem = null;
+  }
+
+  private void onMeasureItem(final Event event) {
+    if (event.index != column) {
+      return;
+    }
+    final int size = StarRating.getStarSize(sizeOfStars);
+    event.width = Math.max(event.width,
+        (maxNumberOfStars * size) + (2 * MARGIN));
+    event.height = Math.max(event.height, size + (2 * MARGIN));
+  }
+
+  private void onPaintItem(final Event event) {
+    if (event.index != column) {
+      return;
+    }
+    final Item item = (Item) event.item;
+    final Rectangle cell = getCellBounds(item);
+    final Rectangle clip = new Rectangle(event.x, event.y, event.width,
+        event.height);
+    final int size = StarRating.getStarSize(sizeOfStars);
+    final int rating = getRating(item);
+    final int hover = (item == hoverItem ? hoverIndex : - 1);
+    final boolean enabled = host.isEnabled();
+    final GC gc = event.gc;
+    final int y = getStarsY(cell);
+    for (int i = 0; i < maxNumberOfStars; ++i) {
+      final int x = getStarsX(cell) + (i * size);
+      if ((x >= (clip.x + clip.width)) || ((x + size) <= clip.x)) {
+        continue;
+      }
+      final Image image = Star.getImage(host.getDisplay(), sizeOfStars,
+          enabled, i < rating, i <= hover);
+      gc.drawImage(image, x, y);
+    }
+  }
+
+  private void onMouseMove(final Event event) {
+    final Item item = getItem(event.x, event.y);
+    if (item == null) {
+      setHover(null, - 1);
+      return;
+    }
+    final int index = getStarIndex(item, event.x, event.y);
+    if (index < 0) {
+      setHover(null, - 1);
+    } else {
+      setHover(item, index);
+    }
+  }
+
+  private void onMouseUp(final Event event) {
+    if ((event.button != 1) || ! host.isEnabled()) {
+      return;
+    }
+    final Item item = getItem(event.x, event.y);
+    if (item == null) {
+      return;
+    }
+    final int i = getStarIndex(item, event.x, event.y);
+    if (i < 0) {
+      return;
+    }
+    //  the same behavior as the StarRating control
+    if ((i + 1) == getRating(item)) {
+      setRating(item, i);
+    } else {
+      setRating(item, i + 1);
+    }
+    fireSelectionEvent(item);
+  }
+
+  /**
+   * Sets the hovered star.
+   * <p>
+   * Nothing is repainted if the hovered star does not change; otherwise only
+   * the cells of the previously and the newly hovered items are repainted.
+   *
+   * @param item
+   *          the hovered item, or null if no item is hovered.
+   * @param index
+   *          the index of the hovered star in the hovered item, or -1 if no
+   *          item is hovered.
+   */
+  private void setHover(final Item item, final int index) {
+    if ((item == hoverItem) && (index == hoverIndex)) {
+      return;
+    }
+    final Item oldItem = hoverItem;
+    hoverItem = item;
+    hoverIndex = index;
+    if ((oldItem != null) && (oldItem != item) && ! oldItem.isDisposed()) {
+      redrawCell(oldItem);
+    }
+    if (item != null) {
+      redrawCell(item);
+    }
+  }
+
+  private void fireSelectionEvent(final Item item) {
+    final Event event = new Event();
+    event.widget = host;
+    event.display = host.getDisplay();
+    event.item = item;
+    event.type = SWT.Selection;
+    for (final SelectionListener selectionListener :
+        new ArrayList<SelectionListener>(selectionListeners)) {
+      selectionListener.widgetSelected(new SelectionEvent(event));
+    }
+  }
+
+  private Item getItem(final int x, final int y) {
+    final Point point = new Point(x, y);
+    if (host instanceof Table) {
+      return ((Table) host).getItem(point);
+    } else {
+      return ((Tree) host).getItem(point);
+    }
+  }
+
+  private Rectangle getCellBounds(final Item item) {
+    if (item instanceof TableItem) {
+      return ((TableItem) item).getBounds(column);
+    } else {
+      return ((TreeItem) item).getBounds(column);
+    }
+  }
+
+  private int getStarsX(final Rectangle cell) {
+    return cell.x + MARGIN;
+  }
+
+  private int getStarsY(final Rectangle cell) {
+    return cell.y
+        + ((cell.height - StarRating.getStarSize(sizeOfStars)) / 2);
+  }
+
+  /**
+   * Gets the index of the star of an item at the given point.
+   *
+   * @param item
+   *          the item.
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return the index of the star at the given point, or -1 if there is no
+   *         star at that point.
+   */
+  private int getStarIndex(final Item item, final int x, final int y) {
+    final Rectangle cell = getCellBounds(item);
+    final int size = StarRating.getStarSize(sizeOfStars);
+    final int dx = x - getStarsX(cell);
+    final int dy = y - getStarsY(cell);
+    if ((dx < 0) || (dy < 0) || (dy >= size)) {
+      return - 1;
+    }
+    final int index = dx / size;
+    return (index < maxNumberOfStars ? index : - 1);
+  }
+
+  private void redrawCell(final Item item) {
+    final Rectangle cell = getCellBounds(item);
+    host.redraw(cell.x, cell.y, cell.width, cell.height, false);
+  }
+}
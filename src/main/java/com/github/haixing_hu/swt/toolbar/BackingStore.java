@@ -0,0 +1,201 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.toolbar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.graphics.Transform;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+
+import com.github.haixing_hu.swt.utils.ResourceTracker;
+
+/**
+ * An off-screen image retaining the rendering of a custom drawn control.
+ * <p>
+ * The control is rendered into the image only when its visual state changes,
+ * and each paint event simply copies the damaged rectangle from the image to
+ * the screen. A state change of a part of the control invalidates only the
+ * area of that part, which is re-rendered on the next paint event.
+ * <p>
+ * An invalidated area is rendered into a scratch image translated to the
+ * origin of the area, so the renderer could freely set and reset the clipping
+ * of the graphic context without drawing outside the area.
+ *
+ * @author Haixing Hu
+ */
+final class BackingStore {
+
+  /**
+   * The interface of the objects rendering a control.
+   */
+  interface Renderer {
+
+    /**
+     * Renders the control.
+     *
+     * @param gc
+     *          the graphic context on which to render the control. The
+     *          background of the control has already been filled.
+     * @param width
+     *          the width of the control.
+     * @param height
+     *          the height of the control.
+     * @param area
+     *          the area to be rendered, in the coordinate system of the
+     *          control. The rendering outside this area is discarded.
+     */
+    void render(GC gc, int width, int height, Rectangle area);
+  }
+
+  private final Control control;
+  private final Renderer renderer;
+  private final List<Rectangle> dirtyAreas;
+  private boolean allDirty;
+  private Image image;
+
+  BackingStore(final Control control, final Renderer renderer) {
+    this.control = control;
+    this.renderer = renderer;
+    this.dirtyAreas = new ArrayList<Rectangle>();
+    this.allDirty = true;
+    this.image = null;
+  }
+
+  /**
+   * Invalidates the whole backing store.
+   */
+  void invalidate() {
+    allDirty = true;
+    dirtyAreas.clear();
+  }
+
+  /**
+   * Invalidates an area of the backing store.
+   *
+   * @param x
+   *          the x-coordinate of the area.
+   * @param y
+   *          the y-coordinate of the area.
+   * @param width
+   *          the width of the area.
+   * @param height
+   *          the height of the area.
+   */
+  void invalidate(final int x, final int y, final int width,
+      final int height) {
+    if (allDirty || (width <= 0) || (height <= 0)) {
+      return;
+    }
+    final Rectangle area = new Rectangle(x, y, width, height);
+    for (final Rectangle dirty : dirtyAreas) {
+      if (dirty.contains(x, y)
+          && dirty.contains((x + width) - 1, (y + height) - 1)) {
+        return;
+      }
+    }
+    dirtyAreas.add(area);
+  }
+
+  /**
+   * Paints the damaged area of the control from the backing store, rendering
+   * the invalidated areas first.
+   *
+   * @param e
+   *          the paint event.
+   */
+  void paint(final PaintEvent e) {
+    final Point size = control.getSize();
+    if ((size.x <= 0) || (size.y <= 0)) {
+      return;
+    }
+    if ((image == null) || image.isDisposed()
+        || (image.getBounds().width != size.x)
+        || (image.getBounds().height != size.y)) {
+      dispose();
+      image = ResourceTracker.track(new Image(control.getDisplay(), size.x,
+          size.y));
+      invalidate();
+    }
+    if (allDirty) {
+      final GC gc = new GC(image);
+      try {
+        render(gc, size, new Rectangle(0, 0, size.x, size.y));
+      } finally {
+        gc.dispose();
+      }
+      allDirty = false;
+    } else if (! dirtyAreas.isEmpty()) {
+      final GC gc = new GC(image);
+      try {
+        for (final Rectangle area : dirtyAreas) {
+          renderArea(gc, size, area);
+        }
+      } finally {
+        gc.dispose();
+      }
+    }
+    dirtyAreas.clear();
+    e.gc.drawImage(image, e.x, e.y, e.width, e.height, e.x, e.y, e.width,
+        e.height);
+  }
+
+  /**
+   * Disposes the backing store.
+   */
+  void dispose() {
+    if (image != null) {
+      image.dispose();
+      image = null;
+    }
+  }
+
+  private void renderArea(final GC gc, final Point size, Rectangle area) {
+    area = area.intersection(new Rectangle(0, 0, size.x, size.y));
+    if (area.isEmpty()) {
+      return;
+    }
+    final Display display = control.getDisplay();
+    final Image scratch = ResourceTracker.track(new Image(display,
+        area.width, area.height));
+    final Transform transform = ResourceTracker.track(new Transform(display));
+    try {
+      final GC scratchGc = new GC(scratch);
+      try {
+        transform.translate(- area.x, - area.y);
+        scratchGc.setTransform(transform);
+        render(scratchGc, size, area);
+      } finally {
+        scratchGc.dispose();
+      }
+      gc.drawImage(scratch, area.x, area.y);
+    } finally {
+      transform.dispose();
+      scratch.dispose();
+    }
+  }
+
+  private void render(final GC gc, final Point size, final Rectangle area) {
+    gc.setBackground(control.getBackground());
+    gc.fillRectangle(area);
+    renderer.render(gc, size.x, size.y, area);
+  }
+}
@@ -12,7 +12,6 @@
 package com.github.haixing_hu.swt.toolbar;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.swt.SWT;
@@ -20,15 +19,20 @@ import org.eclipse.swt.SWTException;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Canvas;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.MenuItem;
 import org.eclipse.swt.widgets.Widget;
 
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
+import com.github.haixing_hu.swt.utils.TextExtentCache;
 
 
 /**
@@ -62,6 +66,28 @@ public class BreadCrumb extends Canvas {
   static Color BORDER_COLOR_3 = SWTResourceManager.getColor(243, 243, 243);
   boolean hasBorder = false;
 
+  /**
+   * The width of the triangles drawn on the right side of an item, which
+   * overflows the bounds of the item.
+   */
+  static final int TRIANGLES_WIDTH = 10;
+
+  /**
+   * The width of the ellipsis item standing for the collapsed items.
+   */
+  static final int ELLIPSIS_WIDTH = 24;
+
+  private static final String ELLIPSIS = "...";
+
+  private final BackingStore backingStore;
+  private int[] itemOffsets;
+  private int[] previousItemOffsets;
+  private int itemsHeight;
+  private Point preferredSize;
+  private boolean collapseOverflow;
+  private int firstVisibleIndex;
+  private Menu overflowMenu;
+
   /**
    * Constructs a new instance of this class given its parent and a style value
    * describing its behavior and appearance.
@@ -95,8 +121,20 @@ public class BreadCrumb extends Canvas {
    * @see Widget#getStyle()
    */
   public BreadCrumb(final Composite parent, final int style) {
-    super(parent, checkStyle(style) | SWT.DOUBLE_BUFFERED);
+    super(parent, checkStyle(style) | SWT.NO_BACKGROUND);
     this.items = new ArrayList<BreadCrumbItem>();
+    this.backingStore = new BackingStore(this, new BackingStore.Renderer() {
+      @Override
+      public void render(final GC gc, final int width, final int height,
+          final Rectangle area) {
+        renderBreadCrumb(gc, width, height, area);
+      }
+    });
+    this.itemOffsets = null;
+    this.previousItemOffsets = null;
+    this.collapseOverflow = false;
+    this.firstVisibleIndex = 0;
+    this.overflowMenu = null;
     this.hasBorder = (style & SWT.BORDER) != 0;
     addListeners();
   }
@@ -118,24 +156,44 @@ public class BreadCrumb extends Canvas {
         BreadCrumb.this.paintControl(e);
       }
     });
+    addListener(SWT.Resize, new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        //  the bounds of the items depend on the height of the bread crumb,
+        //  but the preferred size does not depend on the size
+        invalidateItemOffsets();
+      }
+    });
+    addListener(SWT.Dispose, new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        BreadCrumb.this.backingStore.dispose();
+        if (BreadCrumb.this.overflowMenu != null) {
+          BreadCrumb.this.overflowMenu.dispose();
+          BreadCrumb.this.overflowMenu = null;
+        }
+      }
+    });
   }
 
   private void addMouseDownListener() {
     addListener(SWT.MouseDown, new Listener() {
       @Override
       public void handleEvent(final Event event) {
-        for (final BreadCrumbItem item : BreadCrumb.this.items) {
-          if (item.getBounds().contains(event.x, event.y)) {
-            final boolean isToggle = (item.getStyle() & SWT.TOGGLE) != 0;
-            final boolean isPush = (item.getStyle() & SWT.PUSH) != 0;
-            if (isToggle || isPush) {
-              item.setSelection(! item.getSelection());
-              redraw();
-              update();
-            }
-            item.setData(IS_BUTTON_PRESSED, "*");
-            return;
+        if (isOnEllipsis(event.x, event.y)) {
+          showOverflowMenu();
+          return;
+        }
+        final BreadCrumbItem item = itemAt(event.x, event.y);
+        if (item != null) {
+          final boolean isToggle = (item.getStyle() & SWT.TOGGLE) != 0;
+          final boolean isPush = (item.getStyle() & SWT.PUSH) != 0;
+          if (isToggle || isPush) {
+            item.setSelection(! item.getSelection());
+            redraw();
+            update();
           }
+          item.setData(IS_BUTTON_PRESSED, "*");
         }
       }
     });
@@ -145,25 +203,24 @@ public class BreadCrumb extends Canvas {
     addListener(SWT.MouseUp, new Listener() {
       @Override
       public void handleEvent(final Event event) {
-        for (final BreadCrumbItem item : BreadCrumb.this.items) {
-          if (item.getBounds().contains(event.x, event.y)) {
-            if (item.getData(IS_BUTTON_PRESSED) == null) {
-              // The button was not pressed
-              return;
-            }
-            item.setData(IS_BUTTON_PRESSED, null);
-
-            if ((item.getStyle() & SWT.PUSH) != 0) {
-              item.setSelection(false);
-            }
-
-            if ((item.getStyle() & (SWT.TOGGLE | SWT.PUSH)) != 0) {
-              item.fireSelectionEvent();
-              redraw();
-              update();
-            }
-            return;
-          }
+        final BreadCrumbItem item = itemAt(event.x, event.y);
+        if (item == null) {
+          return;
+        }
+        if (item.getData(IS_BUTTON_PRESSED) == null) {
+          // The button was not pressed
+          return;
+        }
+        item.setData(IS_BUTTON_PRESSED, null);
+
+        if ((item.getStyle() & SWT.PUSH) != 0) {
+          item.setSelection(false);
+        }
+
+        if ((item.getStyle() & (SWT.TOGGLE | SWT.PUSH)) != 0) {
+          item.fireSelectionEvent();
+          redraw();
+          update();
         }
       }
     });
@@ -173,12 +230,10 @@ public class BreadCrumb extends Canvas {
     addListener(SWT.MouseHover, new Listener() {
       @Override
       public void handleEvent(final Event event) {
-        for (final BreadCrumbItem item : BreadCrumb.this.items) {
-          if (item.getBounds().contains(event.x, event.y)) {
-            setToolTipText(item.getTooltipText() == null ? "" : item
-                .getTooltipText());
-            return;
-          }
+        final BreadCrumbItem item = itemAt(event.x, event.y);
+        if (item != null) {
+          setToolTipText(item.getTooltipText() == null ? "" : item
+              .getTooltipText());
         }
       }
     });
@@ -191,23 +246,235 @@ public class BreadCrumb extends Canvas {
    *          event
    */
   private void paintControl(final PaintEvent e) {
-    final GC gc = e.gc;
+    layoutItems();
+    this.backingStore.paint(e);
+  }
+
+  /**
+   * Renders the bread crumb into the backing store.
+   *
+   * @param gc
+   *          the graphic context.
+   * @param width
+   *          the width of the bread crumb.
+   * @param height
+   *          the height of the bread crumb.
+   * @param area
+   *          the area to be rendered.
+   */
+  private void renderBreadCrumb(final GC gc, final int width,
+      final int height, final Rectangle area) {
     gc.setAdvanced(true);
     gc.setAntialias(SWT.ON);
 
-    final int width = getSize().x;
-    final int height = getSize().y;
-
     drawBackground(gc, width, height);
-    final Iterator<BreadCrumbItem> it = this.items.iterator();
-    int x = 0;
-    while (it.hasNext()) {
-      final BreadCrumbItem item = it.next();
+    final int[] offsets = layoutItems();
+    final int n = this.items.size();
+    final int right = area.x + area.width;
+    if ((this.firstVisibleIndex > 0)
+        && (ELLIPSIS_WIDTH + TRIANGLES_WIDTH > area.x)) {
+      drawEllipsis(gc, height);
+    }
+    //  the collapsed items are neither measured nor drawn
+    for (int i = this.firstVisibleIndex; i < n; ++i) {
+      if ((offsets[i + 1] + TRIANGLES_WIDTH <= area.x)
+          || (offsets[i] >= right)) {
+        continue;
+      }
+      final BreadCrumbItem item = this.items.get(i);
       item.setGc(gc).setToolbarHeight(height)
-          .setIsLastItemOfTheBreadCrumb(! it.hasNext());
-      item.drawButtonAtPosition(x);
-      x += item.getWidth();
+          .setIsLastItemOfTheBreadCrumb(i == (n - 1));
+      item.drawButtonAtPosition(offsets[i]);
+    }
+  }
+
+  private void drawEllipsis(final GC gc, final int height) {
+    gc.setFont(getFont());
+    gc.setForeground(getForeground());
+    final Point extent = TextExtentCache.getInstance(getDisplay())
+        .stringExtent(gc, ELLIPSIS);
+    gc.drawText(ELLIPSIS, (ELLIPSIS_WIDTH - extent.x) / 2,
+        (height - extent.y) / 2, true);
+    drawSeparator(gc, ELLIPSIS_WIDTH, height, this.hasBorder);
+  }
+
+  /**
+   * Draws the triangles separating two adjacent items.
+   *
+   * @param gc
+   *          the graphic context.
+   * @param x
+   *          the x-coordinate of the right side of the left item.
+   * @param height
+   *          the height of the bread crumb.
+   * @param hasBorder
+   *          whether the bread crumb has a border.
+   */
+  static void drawSeparator(final GC gc, final int x, final int height,
+      final boolean hasBorder) {
+    gc.setForeground(BORDER_COLOR);
+    drawTriangle(gc, x, height);
+
+    gc.setAlpha(127);
+    gc.setForeground(BORDER_COLOR_1);
+    drawTriangle(gc, x + 1, height);
+
+    gc.setForeground(BORDER_COLOR_2);
+    drawTriangle(gc, x + 2, height);
+
+    gc.setForeground(BORDER_COLOR_3);
+    drawTriangle(gc, x + 3, height);
+
+    gc.setAlpha(255);
+    if (hasBorder) {
+      gc.setForeground(BORDER_COLOR);
+      gc.drawLine(x, 0, x + 3, 0);
+      gc.drawLine(x, height - 1, x + 3, height - 1);
+    }
+  }
+
+  private static void drawTriangle(final GC gc, final int x,
+      final int height) {
+    gc.drawLine(x, 0, x + 5, height / 2);
+    gc.drawLine(x + 5, height / 2, x, height);
+  }
+
+  /**
+   * Discards the current layout of the items.
+   * <p>
+   * This function must be called whenever an item is added or removed, or the
+   * size of an item is changed.
+   */
+  void invalidateLayout() {
+    this.preferredSize = null;
+    invalidateItemOffsets();
+  }
+
+  private void invalidateItemOffsets() {
+    if (this.itemOffsets != null) {
+      this.previousItemOffsets = this.itemOffsets;
+    }
+    this.itemOffsets = null;
+  }
+
+  /**
+   * Computes the positions and the bounds of the items, if they are not
+   * computed yet.
+   *
+   * @return the array of the x-coordinates of the items, whose i-th element is
+   *         the x-coordinate of the i-th item, and whose last element is the
+   *         total width of the items.
+   */
+  int[] layoutItems() {
+    if (this.itemOffsets == null) {
+      final int n = this.items.size();
+      final Point size = getSize();
+      final int first = (this.collapseOverflow ? findFirstVisibleIndex(size.x)
+                                               : 0);
+      final int[] offsets = new int[n + 1];
+      //  the collapsed items are laid out with zero width after the ellipsis
+      final int start = (first > 0 ? ELLIPSIS_WIDTH : 0);
+      for (int i = 0; i < first; ++i) {
+        final BreadCrumbItem item = this.items.get(i);
+        item.setIndex(i);
+        item.updateBounds(start, 0, size.y);
+        offsets[i] = start;
+      }
+      offsets[first] = start;
+      int maxHeight = 0;
+      for (int i = first; i < n; ++i) {
+        final BreadCrumbItem item = this.items.get(i);
+        final int width = item.getWidth();
+        item.setIndex(i);
+        item.updateBounds(offsets[i], width, size.y);
+        offsets[i + 1] = offsets[i] + width;
+        maxHeight = Math.max(maxHeight, item.getHeight());
+      }
+      this.firstVisibleIndex = first;
+      this.itemsHeight = maxHeight;
+      invalidateMovedItems(this.previousItemOffsets, offsets);
+      this.previousItemOffsets = null;
+      this.itemOffsets = offsets;
+    }
+    return this.itemOffsets;
+  }
+
+  /**
+   * Finds the first item to be displayed when the overflowed items are
+   * collapsed.
+   * <p>
+   * The items are measured from the last one backward, and the measuring stops
+   * at the first item which could not fit, hence the cost depends on the
+   * visible width rather than the number of items. The last item is always
+   * displayed.
+   *
+   * @param availableWidth
+   *          the width available for the items.
+   * @return the index of the first item to be displayed; the items before it
+   *         are collapsed into the ellipsis.
+   */
+  private int findFirstVisibleIndex(final int availableWidth) {
+    final int n = this.items.size();
+    int first = n;
+    int total = 0;
+    while (first > 0) {
+      final int width = this.items.get(first - 1).getWidth();
+      final int reserved = (first > 1 ? ELLIPSIS_WIDTH : 0);
+      if ((first < n) && ((total + width + reserved) > availableWidth)) {
+        break;
+      }
+      total += width;
+      --first;
+    }
+    return first;
+  }
+
+  /**
+   * Invalidates the rendering of an item whose visual state is changed.
+   *
+   * @param item
+   *          the item whose visual state is changed.
+   */
+  void itemChanged(final BreadCrumbItem item) {
+    final int[] offsets = layoutItems();
+    final int index = item.getIndex();
+    if ((index >= this.firstVisibleIndex) && (index < this.items.size())
+        && (this.items.get(index) == item)) {
+      this.backingStore.invalidate(offsets[index], 0,
+          (offsets[index + 1] - offsets[index]) + TRIANGLES_WIDTH,
+          getSize().y);
+    }
+  }
+
+  /**
+   * Invalidates the rendering of the items moved or resized by a new layout.
+   *
+   * @param oldOffsets
+   *          the offsets of the items in the old layout, or null if there is
+   *          no old layout.
+   * @param newOffsets
+   *          the offsets of the items in the new layout.
+   */
+  private void invalidateMovedItems(final int[] oldOffsets,
+      final int[] newOffsets) {
+    if (oldOffsets == null) {
+      this.backingStore.invalidate();
+      return;
     }
+    final int n = Math.min(oldOffsets.length, newOffsets.length);
+    int i = 0;
+    while ((i < n) && (oldOffsets[i] == newOffsets[i])) {
+      ++i;
+    }
+    if ((i == n) && (oldOffsets.length == newOffsets.length)) {
+      return;   // nothing moved
+    }
+    //  the item before the first moved one may have became the last item,
+    //  which has no triangles.
+    final int first = Math.max(0, i - 2);
+    final Point size = getSize();
+    this.backingStore.invalidate(newOffsets[first], 0,
+        size.x - newOffsets[first], size.y);
   }
 
   private void drawBackground(final GC gc, final int width, final int height) {
@@ -229,6 +496,7 @@ public class BreadCrumb extends Canvas {
    */
   void addItem(final BreadCrumbItem item) {
     this.items.add(item);
+    invalidateLayout();
   }
 
   /**
@@ -237,14 +505,75 @@ public class BreadCrumb extends Canvas {
   @Override
   public Point computeSize(final int wHint, final int hHint,
       final boolean changed) {
-    int width = 0, height = 0;
-    for (final BreadCrumbItem item : this.items) {
+    checkWidget();
+    //  the preferred size is the uncollapsed size of the items, or their
+    //  collapsed size against the width hint if any; only the real layout
+    //  collapses the items against the actual width of the receiver
+    if ((! this.collapseOverflow) || (wHint == SWT.DEFAULT)) {
+      final Point size = getPreferredSize();
+      return new Point(Math.max(size.x, wHint), Math.max(size.y, hHint));
+    }
+    final int n = this.items.size();
+    if (wHint == getSize().x) {
+      //  the collapsed layout against the hint is the current layout
+      final int[] offsets = layoutItems();
+      return new Point(Math.max(offsets[n], wHint),
+          Math.max(this.itemsHeight, hHint));
+    }
+    final int first = findFirstVisibleIndex(wHint);
+    int width = (first > 0 ? ELLIPSIS_WIDTH : 0);
+    int height = 0;
+    for (int i = first; i < n; ++i) {
+      final BreadCrumbItem item = this.items.get(i);
       width += item.getWidth();
       height = Math.max(height, item.getHeight());
     }
     return new Point(Math.max(width, wHint), Math.max(height, hHint));
   }
 
+  /**
+   * Gets the total size of all the items, without collapsing any of them.
+   * <p>
+   * The size is computed once and kept until the layout of the items is
+   * invalidated, hence a parent layout measures the items only once.
+   *
+   * @return the total width and the maximum height of all the items.
+   */
+  private Point getPreferredSize() {
+    if (this.preferredSize == null) {
+      int width = 0;
+      int height = 0;
+      for (final BreadCrumbItem item : this.items) {
+        width += item.getWidth();
+        height = Math.max(height, item.getHeight());
+      }
+      this.preferredSize = new Point(width, height);
+    }
+    return this.preferredSize;
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Control#setFont(org.eclipse.swt.graphics.Font)
+   */
+  @Override
+  public void setFont(final Font font) {
+    super.setFont(font);
+    for (final BreadCrumbItem item : this.items) {
+      item.invalidateSize();
+    }
+    invalidateLayout();
+    this.backingStore.invalidate();
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Control#setBackground(org.eclipse.swt.graphics.Color)
+   */
+  @Override
+  public void setBackground(final Color color) {
+    super.setBackground(color);
+    this.backingStore.invalidate();
+  }
+
   /**
    * Returns the item at the given, zero-relative index in the receiver. Throws
    * an exception if the index is out of range.
@@ -294,12 +623,88 @@ public class BreadCrumb extends Canvas {
    */
   public BreadCrumbItem getItem(final Point point) {
     checkWidget();
-    for (final BreadCrumbItem item : this.items) {
-      if (item.getBounds().contains(point)) {
-        return item;
-      }
+    if (point == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
     }
-    return null;
+    return itemAt(point.x, point.y);
+  }
+
+  /**
+   * Tests whether the ellipsis standing for the collapsed items is displayed
+   * at the given point.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return true if the ellipsis is displayed at the given point.
+   */
+  private boolean isOnEllipsis(final int x, final int y) {
+    layoutItems();
+    return (this.firstVisibleIndex > 0) && (x >= 0) && (x < ELLIPSIS_WIDTH)
+        && (y >= 0) && (y < getSize().y);
+  }
+
+  /**
+   * Shows the drop down menu of the collapsed items below the ellipsis.
+   * <p>
+   * The menu is created on the first use, and filled with the currently
+   * collapsed items each time it is shown.
+   */
+  private void showOverflowMenu() {
+    if (this.overflowMenu == null) {
+      this.overflowMenu = new Menu(this);
+      this.overflowMenu.addListener(SWT.Show, new Listener() {
+        @Override
+        public void handleEvent(final Event event) {
+          fillOverflowMenu();
+        }
+      });
+    }
+    this.overflowMenu.setLocation(toDisplay(0, getSize().y));
+    this.overflowMenu.setVisible(true);
+  }
+
+  private void fillOverflowMenu() {
+    for (final MenuItem menuItem : this.overflowMenu.getItems()) {
+      menuItem.dispose();
+    }
+    layoutItems();
+    //  the nearest ancestor comes first
+    for (int i = this.firstVisibleIndex - 1; i >= 0; --i) {
+      final BreadCrumbItem item = this.items.get(i);
+      final MenuItem menuItem = new MenuItem(this.overflowMenu, SWT.PUSH);
+      menuItem.setText(item.getText().replace("&", "&&"));
+      menuItem.setImage(item.getImage());
+      menuItem.setEnabled(item.isEnabled());
+      menuItem.addListener(SWT.Selection, new Listener() {
+        @Override
+        public void handleEvent(final Event event) {
+          if (! item.isDisposed()) {
+            item.fireSelectionEvent();
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Finds the item at the given point by a binary search on the layout of the
+   * items.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return the item at the given point, or null if no such item exists.
+   */
+  private BreadCrumbItem itemAt(final int x, final int y) {
+    final int[] offsets = layoutItems();
+    if ((y < 0) || (y >= getSize().y)) {
+      return null;
+    }
+    final int index = ItemOffsets.indexAt(offsets, x);
+    return (index < 0 ? null : this.items.get(index));
   }
 
   /**
@@ -364,7 +769,65 @@ public class BreadCrumb extends Canvas {
    */
   public int indexOf(final BreadCrumbItem item) {
     checkWidget();
-    return this.items.indexOf(item);
+    if (item == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    layoutItems();
+    final int index = item.getIndex();
+    if ((index >= 0) && (index < this.items.size())
+        && (this.items.get(index) == item)) {
+      return index;
+    } else {
+      return - 1;
+    }
+  }
+
+  /**
+   * Tests whether the items overflowing the width of the receiver are collapsed
+   * into an ellipsis.
+   *
+   * @return true if the overflowed items are collapsed, false otherwise.
+   *
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public boolean isCollapseOverflow() {
+    checkWidget();
+    return this.collapseOverflow;
+  }
+
+  /**
+   * Sets whether the items overflowing the width of the receiver are collapsed
+   * into an ellipsis.
+   * <p>
+   * When enabled, only the trailing items fitting in the width of the receiver
+   * are measured and displayed. The leading items are collapsed into an
+   * ellipsis, which shows them in a drop down menu when clicked. Therefore the
+   * cost of laying out and painting the receiver depends on its width instead
+   * of the depth of the path.
+   *
+   * @param collapseOverflow
+   *          true to collapse the overflowed items, false otherwise.
+   *
+   * @exception SWTException
+   *              <ul>
+   *              <li>ERROR_WIDGET_DISPOSED - if the receiver has been disposed</li>
+   *              <li>ERROR_THREAD_INVALID_ACCESS - if not called from the
+   *              thread that created the receiver</li>
+   *              </ul>
+   */
+  public void setCollapseOverflow(final boolean collapseOverflow) {
+    checkWidget();
+    if (this.collapseOverflow != collapseOverflow) {
+      this.collapseOverflow = collapseOverflow;
+      invalidateLayout();
+      this.backingStore.invalidate();
+      redraw();
+    }
   }
 
   /**
@@ -375,6 +838,7 @@ public class BreadCrumb extends Canvas {
    */
   public void removeItem(final BreadCrumbItem item) {
     this.items.remove(item);
+    invalidateLayout();
   }
 
 }
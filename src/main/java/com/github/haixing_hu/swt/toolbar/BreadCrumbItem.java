@@ -28,6 +28,8 @@ import org.eclipse.swt.widgets.Item;
 import org.eclipse.swt.widgets.Widget;
 
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
+import com.github.haixing_hu.swt.utils.TextElider;
+import com.github.haixing_hu.swt.utils.TextExtentCache;
 
 /**
  * Instances of this class represent a selectable user interface object that
@@ -62,6 +64,8 @@ public class BreadCrumbItem extends Item {
   private GC gc;
   private int toolbarHeight;
   private boolean isLastItemOfTheBreadCrumb;
+  private Point sizeOfTextAndImages;
+  private int index;
 
   /**
    * Constructs a new instance of this class given its parent (which must be a
@@ -154,6 +158,7 @@ public class BreadCrumbItem extends Item {
 
     this.selectionListeners = new ArrayList<SelectionListener>();
     this.width = this.height = - 1;
+    this.index = - 1;
   }
 
   private static int checkStyle(int style) {
@@ -266,6 +271,7 @@ public class BreadCrumbItem extends Item {
    */
   public Rectangle getBounds() {
     checkWidget();
+    this.parentBreadcrumb.layoutItems();
     return this.bounds;
   }
 
@@ -524,6 +530,7 @@ public class BreadCrumbItem extends Item {
   public void setAlignment(final int alignment) {
     checkWidget();
     this.alignment = alignment;
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -578,6 +585,8 @@ public class BreadCrumbItem extends Item {
   public void setDisabledImage(final Image image) {
     checkWidget();
     this.disabledImage = image;
+    invalidateSize();
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -601,6 +610,7 @@ public class BreadCrumbItem extends Item {
   public void setEnabled(final boolean enabled) {
     checkWidget();
     this.enabled = enabled;
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -623,6 +633,7 @@ public class BreadCrumbItem extends Item {
   public void setHeight(final int height) {
     checkWidget();
     this.height = Math.max(height, 0);
+    this.parentBreadcrumb.invalidateLayout();
   }
 
   /**
@@ -641,6 +652,7 @@ public class BreadCrumbItem extends Item {
   public void setSelection(final boolean selected) {
     checkWidget();
     this.selection = selected;
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -664,6 +676,28 @@ public class BreadCrumbItem extends Item {
   public void setSelectionImage(final Image image) {
     checkWidget();
     this.selectionImage = image;
+    invalidateSize();
+    this.parentBreadcrumb.itemChanged(this);
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Item#setImage(org.eclipse.swt.graphics.Image)
+   */
+  @Override
+  public void setImage(final Image image) {
+    super.setImage(image);
+    invalidateSize();
+    this.parentBreadcrumb.itemChanged(this);
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Item#setText(java.lang.String)
+   */
+  @Override
+  public void setText(final String string) {
+    super.setText(string);
+    invalidateSize();
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -687,6 +721,7 @@ public class BreadCrumbItem extends Item {
   public void setTextColor(final Color textColor) {
     checkWidget();
     this.textColor = textColor;
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -710,6 +745,7 @@ public class BreadCrumbItem extends Item {
   public void setTextColorSelected(final Color textColor) {
     checkWidget();
     this.textColorSelected = textColor;
+    this.parentBreadcrumb.itemChanged(this);
   }
 
   /**
@@ -759,6 +795,7 @@ public class BreadCrumbItem extends Item {
   public void setWidth(final int width) {
     checkWidget();
     this.width = Math.max(0, width);
+    this.parentBreadcrumb.invalidateLayout();
   }
 
   // --------------------------------------------- Package visibility section
@@ -787,9 +824,27 @@ public class BreadCrumbItem extends Item {
     if (drawnedImage != null) {
       xPosition += drawnedImage.getBounds().width + (2 * MARGIN);
     }
-    drawTextAtPosition(x + xPosition);
+    drawTextAtPosition(x + xPosition, x + getWidth() - MARGIN);
+  }
 
-    this.bounds = new Rectangle(x, 0, getWidth(), this.toolbarHeight);
+  /**
+   * Sets the bounds of this item in its parent.
+   * <p>
+   * This function is called by the parent when it lays out the items.
+   *
+   * @param x
+   *          the x-coordinate of this item.
+   * @param width
+   *          the width of this item, which is zero if this item is collapsed.
+   * @param toolbarHeight
+   *          the height of the parent bread crumb.
+   */
+  void updateBounds(final int x, final int width, final int toolbarHeight) {
+    if ((this.bounds == null) || (this.bounds.x != x)
+        || (this.bounds.width != width)
+        || (this.bounds.height != toolbarHeight)) {
+      this.bounds = new Rectangle(x, 0, width, toolbarHeight);
+    }
   }
 
   private void drawBackgroundAtPosition(final int x) {
@@ -800,7 +855,7 @@ public class BreadCrumbItem extends Item {
     this.gc.setBackground(SELECTED_COLOR);
 
     final boolean hasBorder = this.parentBreadcrumb.hasBorder;
-    final boolean isFirst = this.parentBreadcrumb.indexOf(this) == 0;
+    final boolean isFirst = (this.index == 0);
     final int borderWidth = hasBorder ? 1 : 0;
 
     int leftSide;
@@ -840,32 +895,8 @@ public class BreadCrumbItem extends Item {
   }
 
   private void drawTrianglesAtPosition(final int x) {
-    this.gc.setForeground(BreadCrumb.BORDER_COLOR);
-    drawTriangleAtPosition(x + getWidth());
-
-    this.gc.setAlpha(127);
-    this.gc.setForeground(BreadCrumb.BORDER_COLOR_1);
-    drawTriangleAtPosition(x + getWidth() + 1);
-
-    this.gc.setForeground(BreadCrumb.BORDER_COLOR_2);
-    drawTriangleAtPosition(x + getWidth() + 2);
-
-    this.gc.setForeground(BreadCrumb.BORDER_COLOR_3);
-    drawTriangleAtPosition(x + getWidth() + 3);
-
-    this.gc.setAlpha(255);
-    if (this.parentBreadcrumb.hasBorder) {
-      this.gc.setForeground(BreadCrumb.BORDER_COLOR);
-      this.gc.drawLine(x + getWidth(), 0, x + getWidth() + 3, 0);
-      this.gc.drawLine(x + getWidth(), this.toolbarHeight - 1, x + getWidth()
-          + 3, this.toolbarHeight - 1);
-    }
-  }
-
-  private void drawTriangleAtPosition(final int x) {
-    this.gc.drawLine(x, 0, x + 5, this.toolbarHeight / 2);
-    this.gc.drawLine(x + 5, this.toolbarHeight / 2, x, this.toolbarHeight);
-
+    BreadCrumb.drawSeparator(this.gc, x + getWidth(), this.toolbarHeight,
+        this.parentBreadcrumb.hasBorder);
   }
 
   private int computeGap() {
@@ -880,16 +911,55 @@ public class BreadCrumbItem extends Item {
     }
   }
 
+  /**
+   * Discards the cached size of the text and images of this item.
+   * <p>
+   * This function must be called whenever the text, the images or the font of
+   * this item are changed.
+   */
+  void invalidateSize() {
+    this.sizeOfTextAndImages = null;
+    this.parentBreadcrumb.invalidateLayout();
+  }
+
+  /**
+   * Gets the index of this item in its parent, as computed by the last layout
+   * of the parent.
+   *
+   * @return the index of this item in its parent.
+   */
+  int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Sets the index of this item in its parent.
+   * <p>
+   * This function is called by the parent when it lays out the items.
+   *
+   * @param index
+   *          the index of this item in its parent.
+   */
+  void setIndex(final int index) {
+    this.index = index;
+  }
+
   private Point computeSizeOfTextAndImages() {
+    if (this.sizeOfTextAndImages == null) {
+      this.sizeOfTextAndImages = doComputeSizeOfTextAndImages();
+    }
+    return this.sizeOfTextAndImages;
+  }
+
+  private Point doComputeSizeOfTextAndImages() {
     int width = 0, height = 0;
     final boolean textISNotEmpty = (getText() != null)
         && ! getText().equals("");
 
     if (textISNotEmpty) {
-      final GC gc = new GC(this.parentBreadcrumb);
-      gc.setFont(this.parentBreadcrumb.getFont());
-      final Point extent = gc.stringExtent(getText());
-      gc.dispose();
+      final Point extent = TextExtentCache.getInstance(getDisplay())
+          .stringExtent(this.parentBreadcrumb, this.parentBreadcrumb.getFont(),
+              getText());
       width += extent.x;
       height = extent.y;
     }
@@ -940,7 +1010,7 @@ public class BreadCrumbItem extends Item {
     return image;
   }
 
-  private void drawTextAtPosition(final int xPosition) {
+  private void drawTextAtPosition(final int xPosition, final int maxPosition) {
     this.gc.setFont(this.parentBreadcrumb.getFont());
     if (this.selection) {
       this.gc.setForeground(this.textColorSelected);
@@ -948,17 +1018,26 @@ public class BreadCrumbItem extends Item {
       this.gc.setForeground(this.textColor);
     }
 
-    final Point textSize = this.gc.stringExtent(getText());
+    final Point textSize = TextExtentCache.getInstance(getDisplay())
+        .stringExtent(this.gc, getText());
     final int yPosition = (this.toolbarHeight - textSize.y) / 2;
 
     int padding;
-    if ((this.parentBreadcrumb.indexOf(this) == 0)
-        || this.isLastItemOfTheBreadCrumb) {
+    if ((this.index == 0) || this.isLastItemOfTheBreadCrumb) {
       padding = 0;
     } else {
       padding = 5;
     }
-    this.gc.drawText(getText(), xPosition + padding, yPosition, true);
+    String text = getText();
+    if ((this.width != - 1) && (this.width < computeDefaultSize().x)
+        && ((xPosition + padding + textSize.x) > maxPosition)) {
+      //  the width of the item was set smaller than its text, so elide the
+      //  middle of the text, which keeps both ends of a path segment; an item
+      //  of the default width always shows its whole text
+      text = TextElider.getInstance(getDisplay()).elide(this.gc, text,
+          maxPosition - xPosition - padding, TextElider.ELIDE_MIDDLE);
+    }
+    this.gc.drawText(text, xPosition + padding, yPosition, true);
   }
 
   BreadCrumbItem setGc(final GC gc) {
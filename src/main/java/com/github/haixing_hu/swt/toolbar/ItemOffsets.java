@@ -0,0 +1,60 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.toolbar;
+
+/**
+ * Provides functions operating on the cumulative x-offsets of the items laid
+ * out in a row.
+ * <p>
+ * The offsets of <code>n</code> items are stored in an array of
+ * <code>n + 1</code> elements, whose i-th element is the x-coordinate of the
+ * i-th item, and whose last element is the total width of the items.
+ *
+ * @author Haixing Hu
+ */
+final class ItemOffsets {
+
+  private ItemOffsets() {}
+
+  /**
+   * Finds the item containing a x-coordinate by a binary search.
+   *
+   * @param offsets
+   *          the cumulative x-offsets of the items.
+   * @param x
+   *          a x-coordinate.
+   * @return the index of the item whose horizontal range contains the
+   *         specified x-coordinate, or -1 if no such item exists.
+   */
+  static int indexAt(final int[] offsets, final int x) {
+    final int n = offsets.length - 1;
+    if ((n <= 0) || (x < offsets[0]) || (x >= offsets[n])) {
+      return - 1;
+    }
+    //  finds the last i such that offsets[i] <= x, which skips the items of
+    //  zero width since offsets[i + 1] > x is guaranteed.
+    int low = 0;
+    int high = n - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (offsets[mid] <= x) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+}
@@ -27,8 +27,9 @@ import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Item;
 import org.eclipse.swt.widgets.Widget;
 
-import com.github.haixing_hu.swt.utils.AdvancedPath;
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
+import com.github.haixing_hu.swt.utils.TextElider;
+import com.github.haixing_hu.swt.utils.TextExtentCache;
 
 /**
  * Instances of this class represent a selectable user interface object that
@@ -67,6 +68,8 @@ public class RoundedToolItem extends Item {
   private GC gc;
   private int toolbarHeight;
   private boolean isLast;
+  private Point sizeOfTextAndImages;
+  private int index;
 
   /**
    * Constructs a new instance of this class given its parent (which must be a
@@ -149,6 +152,7 @@ public class RoundedToolItem extends Item {
     selectionListeners = new ArrayList<SelectionListener>();
     width = - 1;
     height = - 1;
+    index = - 1;
   }
 
   /**
@@ -195,14 +199,53 @@ public class RoundedToolItem extends Item {
         + sizeOfTextAndImages.y);
   }
 
+  /**
+   * Discards the cached size of the text and images of this item.
+   * <p>
+   * This function must be called whenever the text, the images or the font of
+   * this item are changed.
+   */
+  void invalidateSize() {
+    sizeOfTextAndImages = null;
+    parentToolbar.invalidateLayout();
+  }
+
+  /**
+   * Gets the index of this item in its parent, as computed by the last layout
+   * of the parent.
+   *
+   * @return the index of this item in its parent.
+   */
+  int getIndex() {
+    return index;
+  }
+
+  /**
+   * Sets the index of this item in its parent.
+   * <p>
+   * This function is called by the parent when it lays out the items.
+   *
+   * @param index
+   *          the index of this item in its parent.
+   */
+  void setIndex(final int index) {
+    this.index = index;
+  }
+
   private Point computeSizeOfTextAndImages() {
+    if (sizeOfTextAndImages == null) {
+      sizeOfTextAndImages = doComputeSizeOfTextAndImages();
+    }
+    return sizeOfTextAndImages;
+  }
+
+  private Point doComputeSizeOfTextAndImages() {
     int width = 0, height = 0;
     final boolean textNotEmpty = (getText() != null) && ! getText().equals("");
 
     if (textNotEmpty) {
-      final GC gc = new GC(parentToolbar);
-      final Point extent = gc.stringExtent(getText());
-      gc.dispose();
+      final Point extent = TextExtentCache.getInstance(getDisplay())
+          .stringExtent(parentToolbar, parentToolbar.getFont(), getText());
       width += extent.x;
       height = extent.y;
     }
@@ -262,26 +305,38 @@ public class RoundedToolItem extends Item {
     int xPosition = computeStartingPosition(x);
 
     xPosition += drawImage(x + xPosition);
-    drawText(x + xPosition);
+    drawText(x + xPosition, x + getWidth() - MARGIN);
+  }
 
-    bounds = new Rectangle(x, 0, getWidth(), toolbarHeight);
+  /**
+   * Sets the bounds of this item in its parent.
+   * <p>
+   * This function is called by the parent when it lays out the items.
+   *
+   * @param x
+   *          the x-coordinate of this item.
+   * @param toolbarHeight
+   *          the height of the parent toolbar.
+   */
+  void updateBounds(final int x, final int toolbarHeight) {
+    if ((bounds == null) || (bounds.x != x) || (bounds.width != getWidth())
+        || (bounds.height != toolbarHeight)) {
+      bounds = new Rectangle(x, 0, getWidth(), toolbarHeight);
+    }
   }
 
   private void drawBackground(final int x) {
-    final AdvancedPath path = new AdvancedPath(getDisplay());
-    final boolean isFirst = getParent().indexOf(this) == 0;
-    final int cornerRadius = parentToolbar.getCornerRadius();
+    final boolean isFirst = (index == 0);
+    final int variant;
     if (isFirst) {
-      path.addRoundRectangleStraightRight(x, 0, getWidth(), toolbarHeight,
-          cornerRadius, cornerRadius);
+      variant = RoundedToolbar.PATH_STRAIGHT_RIGHT;
     } else if (isLast) {
-      path.addRoundRectangleStraightLeft(x, 0, getWidth(), toolbarHeight,
-          cornerRadius, cornerRadius);
+      variant = RoundedToolbar.PATH_STRAIGHT_LEFT;
     } else {
-      path.addRectangle(x, 0, getWidth(), toolbarHeight);
+      variant = RoundedToolbar.PATH_RECTANGLE;
     }
-
-    gc.setClipping(path);
+    gc.setClipping(parentToolbar.getPath(variant, x, getWidth(),
+        toolbarHeight));
 
     gc.setForeground(START_GRADIENT_COLOR);
     gc.setBackground(END_GRADIENT_COLOR);
@@ -338,7 +393,7 @@ public class RoundedToolItem extends Item {
     return image.getBounds().width + MARGIN;
   }
 
-  private void drawText(final int xPosition) {
+  private void drawText(final int xPosition, final int maxPosition) {
     gc.setFont(parentToolbar.getFont());
     if (selection) {
       gc.setForeground(textColorSelected);
@@ -346,10 +401,17 @@ public class RoundedToolItem extends Item {
       gc.setForeground(textColor);
     }
 
-    final Point textSize = gc.stringExtent(getText());
+    final Point textSize = TextExtentCache.getInstance(getDisplay())
+        .stringExtent(gc, getText());
     final int yPosition = (toolbarHeight - textSize.y) / 2;
 
-    gc.drawText(getText(), xPosition, yPosition, true);
+    String text = getText();
+    if ((xPosition + textSize.x) > maxPosition) {
+      //  the width of the item was set smaller than its text
+      text = TextElider.getInstance(getDisplay())
+          .elide(gc, text, maxPosition - xPosition, TextElider.ELIDE_END);
+    }
+    gc.drawText(text, xPosition, yPosition, true);
   }
 
   /**
@@ -387,6 +449,7 @@ public class RoundedToolItem extends Item {
    */
   public Rectangle getBounds() {
     checkWidget();
+    parentToolbar.layoutItems();
     return bounds;
   }
 
@@ -635,7 +698,11 @@ public class RoundedToolItem extends Item {
    */
   public void setAlignment(final int alignment) {
     checkWidget();
+    if (this.alignment == alignment) {
+      return;
+    }
     this.alignment = alignment;
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -691,7 +758,12 @@ public class RoundedToolItem extends Item {
    */
   public void setDisabledImage(final Image image) {
     checkWidget();
+    if (disabledImage == image) {
+      return;
+    }
     disabledImage = image;
+    invalidateSize();
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -714,7 +786,11 @@ public class RoundedToolItem extends Item {
    */
   public void setEnabled(final boolean enabled) {
     checkWidget();
+    if (this.enabled == enabled) {
+      return;
+    }
     this.enabled = enabled;
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -737,6 +813,7 @@ public class RoundedToolItem extends Item {
   public void setHeight(final int height) {
     checkWidget();
     this.height = Math.max(height, 0);
+    parentToolbar.invalidateLayout();
   }
 
   /**
@@ -754,7 +831,11 @@ public class RoundedToolItem extends Item {
    */
   public void setSelection(final boolean selected) {
     checkWidget();
+    if (selection == selected) {
+      return;
+    }
     selection = selected;
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -777,7 +858,38 @@ public class RoundedToolItem extends Item {
    */
   public void setSelectionImage(final Image image) {
     checkWidget();
+    if (selectionImage == image) {
+      return;
+    }
     selectionImage = image;
+    invalidateSize();
+    parentToolbar.itemChanged(this);
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Item#setImage(org.eclipse.swt.graphics.Image)
+   */
+  @Override
+  public void setImage(final Image image) {
+    if (image == getImage()) {
+      return;
+    }
+    super.setImage(image);
+    invalidateSize();
+    parentToolbar.itemChanged(this);
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Item#setText(java.lang.String)
+   */
+  @Override
+  public void setText(final String string) {
+    if ((string != null) && string.equals(getText())) {
+      return;
+    }
+    super.setText(string);
+    invalidateSize();
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -800,7 +912,11 @@ public class RoundedToolItem extends Item {
    */
   public void setTextColor(final Color textColor) {
     checkWidget();
+    if (this.textColor == textColor) {
+      return;
+    }
     this.textColor = textColor;
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -824,7 +940,11 @@ public class RoundedToolItem extends Item {
 
   public void setTextColorSelected(final Color textColor) {
     checkWidget();
+    if (textColorSelected == textColor) {
+      return;
+    }
     textColorSelected = textColor;
+    parentToolbar.itemChanged(this);
   }
 
   /**
@@ -873,6 +993,11 @@ public class RoundedToolItem extends Item {
    */
   public void setWidth(final int width) {
     checkWidget();
+    if (this.width == Math.max(0, width)) {
+      return;
+    }
     this.width = Math.max(0, width);
+    parentToolbar.invalidateLayout();
+    parentToolbar.itemChanged(this);
   }
 }
@@ -12,15 +12,18 @@
 package com.github.haixing_hu.swt.toolbar;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.SWTException;
 import org.eclipse.swt.events.PaintEvent;
 import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Path;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.graphics.Rectangle;
@@ -31,6 +34,7 @@ import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Widget;
 
 import com.github.haixing_hu.swt.utils.AdvancedPath;
+import com.github.haixing_hu.swt.utils.ResourceTracker;
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
 
 /**
@@ -61,7 +65,34 @@ public class RoundedToolbar extends Canvas {
 
   public static final RGB DEFAULT_BORDER_COLOR = new RGB(66, 66, 66);
 
+  /**
+   * The shape variant of the path of a rectangle with all corners rounded.
+   */
+  static final int PATH_ROUND = 0;
+
+  /**
+   * The shape variant of the path of a rectangle whose right corners are
+   * straight.
+   */
+  static final int PATH_STRAIGHT_RIGHT = 1;
+
+  /**
+   * The shape variant of the path of a rectangle whose left corners are
+   * straight.
+   */
+  static final int PATH_STRAIGHT_LEFT = 2;
+
+  /**
+   * The shape variant of the path of a rectangle.
+   */
+  static final int PATH_RECTANGLE = 3;
+
   private final List<RoundedToolItem> items;
+  private final Map<String, Path> pathCache;
+  private final BackingStore backingStore;
+  private int[] itemOffsets;
+  private int[] previousItemOffsets;
+  private int itemsHeight;
   private boolean multiSelection;
   private int cornerRadius;
   private final Color startGradientColor;
@@ -186,8 +217,18 @@ public class RoundedToolbar extends Canvas {
    */
   public RoundedToolbar(final Composite parent, final int style, int cornerRadius,
       RGB startGradientColor, RGB endGradientColor, RGB borderColor) {
-    super(parent, style | SWT.DOUBLE_BUFFERED);
+    super(parent, style | SWT.NO_BACKGROUND);
     items = new ArrayList<RoundedToolItem>();
+    pathCache = new HashMap<String, Path>();
+    backingStore = new BackingStore(this, new BackingStore.Renderer() {
+      @Override
+      public void render(final GC gc, final int width, final int height,
+          final Rectangle area) {
+        renderToolbar(gc, width, height, area);
+      }
+    });
+    itemOffsets = null;
+    previousItemOffsets = null;
     this.cornerRadius = cornerRadius;
     this.startGradientColor = SWTResourceManager.getColor(startGradientColor);
     this.endGradientColor = SWTResourceManager.getColor(endGradientColor);
@@ -199,23 +240,20 @@ public class RoundedToolbar extends Canvas {
     addListener(SWT.MouseUp, new Listener() {
       @Override
       public void handleEvent(final Event event) {
-        for (final RoundedToolItem item : items) {
-          if (item.getBounds().contains(event.x, event.y)) {
-            if (! multiSelection) {
-              applyRadioBehaviour(item);
-            }
-            item.setSelection(! item.getSelection());
-            item.fireSelectionEvent();
-            redraw();
-            update();
-            return;
+        final RoundedToolItem item = itemAt(event.x, event.y);
+        if (item != null) {
+          if (! multiSelection) {
+            applyRadioBehaviour(item);
           }
+          //  the item redraws only its own area of the toolbar
+          item.setSelection(! item.getSelection());
+          item.fireSelectionEvent();
         }
       }
 
       private void applyRadioBehaviour(final RoundedToolItem selectedItem) {
         for (final RoundedToolItem item : items) {
-          if (! item.equals(selectedItem)) {
+          if ((item != selectedItem) && item.getSelection()) {
             item.setSelection(false);
             item.fireSelectionEvent();
           }
@@ -226,12 +264,10 @@ public class RoundedToolbar extends Canvas {
     addListener(SWT.MouseHover, new Listener() {
       @Override
       public void handleEvent(final Event event) {
-        for (final RoundedToolItem item : items) {
-          if (item.getBounds().contains(event.x, event.y)) {
-            setToolTipText(item.getTooltipText() == null ? "" : item
-                .getTooltipText());
-            return;
-          }
+        final RoundedToolItem item = itemAt(event.x, event.y);
+        if (item != null) {
+          setToolTipText(item.getTooltipText() == null ? "" : item
+              .getTooltipText());
         }
       }
     });
@@ -242,6 +278,21 @@ public class RoundedToolbar extends Canvas {
         RoundedToolbar.this.paintControl(e);
       }
     });
+
+    addListener(SWT.Resize, new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        //  the bounds of the items depend on the height of the toolbar
+        invalidateLayout();
+      }
+    });
+    addListener(SWT.Dispose, new Listener() {
+      @Override
+      public void handleEvent(final Event event) {
+        disposePaths();
+        backingStore.dispose();
+      }
+    });
   }
 
   /**
@@ -252,6 +303,7 @@ public class RoundedToolbar extends Canvas {
    */
   void addItem(final RoundedToolItem roundedToolItem) {
     items.add(roundedToolItem);
+    invalidateLayout();
   }
 
   /**
@@ -261,12 +313,31 @@ public class RoundedToolbar extends Canvas {
   public Point computeSize(final int wHint, final int hHint,
       final boolean changed) {
     checkWidget();
-    int width = 0, height = 0;
+    final int[] offsets = layoutItems();
+    final int width = offsets[offsets.length - 1];
+    return new Point(Math.max(width, wHint), Math.max(itemsHeight, hHint));
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Control#setFont(org.eclipse.swt.graphics.Font)
+   */
+  @Override
+  public void setFont(final Font font) {
+    super.setFont(font);
     for (final RoundedToolItem item : items) {
-      width += item.getWidth();
-      height = Math.max(height, item.getHeight());
+      item.invalidateSize();
     }
-    return new Point(Math.max(width, wHint), Math.max(height, hHint));
+    invalidateLayout();
+    backingStore.invalidate();
+  }
+
+  /**
+   * @see org.eclipse.swt.widgets.Control#setBackground(org.eclipse.swt.graphics.Color)
+   */
+  @Override
+  public void setBackground(final Color color) {
+    super.setBackground(color);
+    backingStore.invalidate();
   }
 
   /**
@@ -318,12 +389,29 @@ public class RoundedToolbar extends Canvas {
    */
   public RoundedToolItem getItem(final Point point) {
     checkWidget();
-    for (final RoundedToolItem item : items) {
-      if (item.getBounds().contains(point)) {
-        return item;
-      }
+    if (point == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    return itemAt(point.x, point.y);
+  }
+
+  /**
+   * Finds the item at the given point by a binary search on the layout of the
+   * items.
+   *
+   * @param x
+   *          the x-coordinate of the point.
+   * @param y
+   *          the y-coordinate of the point.
+   * @return the item at the given point, or null if no such item exists.
+   */
+  private RoundedToolItem itemAt(final int x, final int y) {
+    final int[] offsets = layoutItems();
+    if ((y < 0) || (y >= getSize().y)) {
+      return null;
     }
-    return null;
+    final int index = ItemOffsets.indexAt(offsets, x);
+    return (index < 0 ? null : items.get(index));
   }
 
   /**
@@ -388,7 +476,167 @@ public class RoundedToolbar extends Canvas {
    */
   public int indexOf(final RoundedToolItem item) {
     checkWidget();
-    return items.indexOf(item);
+    if (item == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    layoutItems();
+    final int index = item.getIndex();
+    if ((index >= 0) && (index < items.size()) && (items.get(index) == item)) {
+      return index;
+    } else {
+      return - 1;
+    }
+  }
+
+  /**
+   * Discards the current layout of the items.
+   * <p>
+   * This function must be called whenever an item is added or removed, or the
+   * size of an item is changed.
+   */
+  void invalidateLayout() {
+    if (itemOffsets != null) {
+      previousItemOffsets = itemOffsets;
+    }
+    itemOffsets = null;
+    disposePaths();
+  }
+
+  /**
+   * Invalidates and redraws the area of an item whose visual state is changed.
+   * <p>
+   * Only the area of the specified item is repainted, the other items are
+   * neither rendered nor copied to the screen.
+   *
+   * @param item
+   *          the item whose visual state is changed.
+   */
+  void itemChanged(final RoundedToolItem item) {
+    final int[] offsets = layoutItems();
+    final int index = item.getIndex();
+    if ((index >= 0) && (index < items.size()) && (items.get(index) == item)) {
+      final int height = getSize().y;
+      //  one more pixel for the separator line on the right side
+      final int width = (offsets[index + 1] - offsets[index]) + 1;
+      backingStore.invalidate(offsets[index], 0, width, height);
+      redraw(offsets[index], 0, width, height, false);
+    }
+  }
+
+  /**
+   * Invalidates the rendering of the items moved or resized by a new layout.
+   *
+   * @param oldOffsets
+   *          the offsets of the items in the old layout, or null if there is
+   *          no old layout.
+   * @param newOffsets
+   *          the offsets of the items in the new layout.
+   */
+  private void invalidateMovedItems(final int[] oldOffsets,
+      final int[] newOffsets) {
+    if (oldOffsets == null) {
+      backingStore.invalidate();
+      return;
+    }
+    final int n = Math.min(oldOffsets.length, newOffsets.length);
+    int i = 0;
+    while ((i < n) && (oldOffsets[i] == newOffsets[i])) {
+      ++i;
+    }
+    if ((i == n) && (oldOffsets.length == newOffsets.length)) {
+      return;   // nothing moved
+    }
+    //  the item before the first moved one may have became the last item,
+    //  whose shape is different.
+    final int first = Math.max(0, i - 2);
+    final Point size = getSize();
+    backingStore.invalidate(newOffsets[first], 0, size.x - newOffsets[first],
+        size.y);
+    redraw(newOffsets[first], 0, size.x - newOffsets[first], size.y, false);
+  }
+
+  /**
+   * Computes the positions and the bounds of the items, if they are not
+   * computed yet.
+   *
+   * @return the array of the x-coordinates of the items, whose i-th element is
+   *         the x-coordinate of the i-th item, and whose last element is the
+   *         total width of the items.
+   */
+  int[] layoutItems() {
+    if (itemOffsets == null) {
+      final int n = items.size();
+      final int height = getSize().y;
+      final int[] offsets = new int[n + 1];
+      int maxHeight = 0;
+      for (int i = 0; i < n; ++i) {
+        final RoundedToolItem item = items.get(i);
+        item.setIndex(i);
+        item.updateBounds(offsets[i], height);
+        offsets[i + 1] = offsets[i] + item.getWidth();
+        maxHeight = Math.max(maxHeight, item.getHeight());
+      }
+      itemsHeight = maxHeight;
+      invalidateMovedItems(previousItemOffsets, offsets);
+      previousItemOffsets = null;
+      itemOffsets = offsets;
+    }
+    return itemOffsets;
+  }
+
+  /**
+   * Gets the cached clipping path of the specified shape.
+   * <p>
+   * The returned path is owned by this toolbar, and is disposed when the
+   * toolbar is resized or disposed. The caller must not dispose it.
+   *
+   * @param variant
+   *          the shape variant of the path, which must be one of
+   *          {@link #PATH_ROUND}, {@link #PATH_STRAIGHT_RIGHT},
+   *          {@link #PATH_STRAIGHT_LEFT} and {@link #PATH_RECTANGLE}.
+   * @param x
+   *          the x-coordinate of the shape.
+   * @param width
+   *          the width of the shape.
+   * @param height
+   *          the height of the shape.
+   * @return the cached path of the specified shape.
+   */
+  Path getPath(final int variant, final int x, final int width,
+      final int height) {
+    final String key = variant + "|" + x + '|' + width + '|' + height + '|'
+        + cornerRadius;
+    Path path = pathCache.get(key);
+    if (path == null) {
+      final AdvancedPath p = ResourceTracker.track(
+          new AdvancedPath(getDisplay()));
+      switch (variant) {
+      case PATH_ROUND:
+        p.addRoundRectangle(x, 0, width, height, cornerRadius, cornerRadius);
+        break;
+      case PATH_STRAIGHT_RIGHT:
+        p.addRoundRectangleStraightRight(x, 0, width, height, cornerRadius,
+            cornerRadius);
+        break;
+      case PATH_STRAIGHT_LEFT:
+        p.addRoundRectangleStraightLeft(x, 0, width, height, cornerRadius,
+            cornerRadius);
+        break;
+      default:
+        p.addRectangle(x, 0, width, height);
+        break;
+      }
+      pathCache.put(key, p);
+      path = p;
+    }
+    return path;
+  }
+
+  private void disposePaths() {
+    for (final Path path : pathCache.values()) {
+      path.dispose();
+    }
+    pathCache.clear();
   }
 
   /**
@@ -398,27 +646,42 @@ public class RoundedToolbar extends Canvas {
    *          event
    */
   protected void paintControl(final PaintEvent e) {
-    final GC gc = e.gc;
+    layoutItems();
+    backingStore.paint(e);
+  }
+
+  /**
+   * Renders the toolbar into the backing store.
+   *
+   * @param gc
+   *          the graphic context.
+   * @param width
+   *          the width of the toolbar.
+   * @param height
+   *          the height of the toolbar.
+   * @param area
+   *          the area to be rendered.
+   */
+  private void renderToolbar(final GC gc, final int width, final int height,
+      final Rectangle area) {
     gc.setAdvanced(true);
     gc.setAntialias(SWT.ON);
 
-    final int width = getSize().x;
-    final int height = getSize().y;
-
     drawBorders(gc, width, height);
-    final Iterator<RoundedToolItem> it = items.iterator();
-    int x = 0;
-    while (it.hasNext()) {
-      final RoundedToolItem item = it.next();
-      item.drawButton(gc, x, height, ! it.hasNext());
-      x += item.getWidth();
+    final int[] offsets = layoutItems();
+    final int n = items.size();
+    final int right = area.x + area.width;
+    for (int i = 0; i < n; ++i) {
+      //  skips the items outside the area, including the separator line
+      if ((offsets[i + 1] + 1 <= area.x) || (offsets[i] >= right)) {
+        continue;
+      }
+      items.get(i).drawButton(gc, offsets[i], height, i == (n - 1));
     }
   }
 
   private void drawBorders(final GC gc, final int width, final int height) {
-    final AdvancedPath path = new AdvancedPath(getDisplay());
-    path.addRoundRectangle(0, 0, width, height, cornerRadius, cornerRadius);
-    gc.setClipping(path);
+    gc.setClipping(getPath(PATH_ROUND, 0, width, height));
 
     gc.setForeground(startGradientColor);
     gc.setBackground(endGradientColor);
@@ -438,6 +701,7 @@ public class RoundedToolbar extends Canvas {
   void removeItem(final RoundedToolItem roundedToolItem) {
     checkWidget();
     items.remove(roundedToolItem);
+    invalidateLayout();
   }
 
   /**
@@ -454,6 +718,8 @@ public class RoundedToolbar extends Canvas {
    */
   public void setCornerRadius(final int cornerRadius) {
     this.cornerRadius = cornerRadius;
+    disposePaths();
+    backingStore.invalidate();
   }
 
   /**
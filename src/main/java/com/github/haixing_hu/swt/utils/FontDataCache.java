@@ -0,0 +1,127 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A cache of the font data of the fonts, shared by the text caches of a
+ * display.
+ * <p>
+ * The text caches identify the fonts by their {@link FontData}, since a new
+ * font may get the handle of a disposed font. Querying the font data of a font
+ * is a native call which allocates a new array, so the font data is kept for
+ * each font instance, and the cache hits on the paint path do no native font
+ * work. The entries of the disposed fonts are dropped when they are looked up,
+ * and purged when the cache grows.
+ * <p>
+ * The instances of this class must be accessed in the UI thread of its
+ * display.
+ *
+ * @author Haixing Hu
+ */
+final class FontDataCache {
+
+  private static final String DATA_KEY = FontDataCache.class.getName();
+
+  /**
+   * The minimum number of entries before the entries of the disposed fonts are
+   * purged.
+   */
+  private static final int MIN_PURGE_THRESHOLD = 64;
+
+  /**
+   * Gets the font data cache of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the font data cache of the specified display.
+   */
+  static FontDataCache getInstance(final Display display) {
+    FontDataCache cache = (FontDataCache) display.getData(DATA_KEY);
+    if (cache == null) {
+      cache = new FontDataCache();
+      display.setData(DATA_KEY, cache);
+      final FontDataCache theCache = cache;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theCache.clear();
+        }
+      });
+    }
+    return cache;
+  }
+
+  //  keyed by identity, since the equality of fonts is based on their handles
+  //  and changes when they are disposed
+  private final Map<Font, FontData[]> fontData;
+  private int purgeThreshold;
+
+  private FontDataCache() {
+    fontData = new IdentityHashMap<Font, FontData[]>();
+    purgeThreshold = MIN_PURGE_THRESHOLD;
+  }
+
+  /**
+   * Gets the font data of a font.
+   * <p>
+   * The returned array is shared and <b>MUST NOT</b> be modified by the
+   * caller.
+   *
+   * @param font
+   *          a font, which must not be disposed.
+   * @return the font data of the specified font.
+   */
+  FontData[] get(Font font) {
+    if (font.isDisposed()) {
+      fontData.remove(font);
+      SWT.error(SWT.ERROR_GRAPHIC_DISPOSED);
+    }
+    FontData[] data = fontData.get(font);
+    if (data == null) {
+      data = font.getFontData();
+      if (fontData.size() >= purgeThreshold) {
+        purgeDisposedFonts();
+      }
+      fontData.put(font, data);
+    }
+    return data;
+  }
+
+  /**
+   * Removes all the cached font data.
+   */
+  void clear() {
+    fontData.clear();
+  }
+
+  private void purgeDisposedFonts() {
+    final Iterator<Font> iter = fontData.keySet().iterator();
+    while (iter.hasNext()) {
+      if (iter.next().isDisposed()) {
+        iter.remove();
+      }
+    }
+    purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, 2 * fontData.size());
+  }
+}
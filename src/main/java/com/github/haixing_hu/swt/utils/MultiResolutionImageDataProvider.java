@@ -0,0 +1,214 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageDataProvider;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An {@link ImageDataProvider} which resolves the high resolution variants of
+ * an image by the naming convention.
+ * <p>
+ * For an image stored in <code>"path/name.png"</code>, the variant for the
+ * 150% zoom level is stored in <code>"path/name@1.5x.png"</code>, and the
+ * variant for the 200% zoom level is stored in
+ * <code>"path/name@2x.png"</code>. The variants are optional; if a variant is
+ * missing, SWT will scale the image of 100% zoom level instead.
+ * <p>
+ * The image data of each zoom level is decoded only when SWT actually asks
+ * for it, and then cached, so that neither the unused variants are decoded
+ * up front, nor the used ones are decoded twice.
+ * <p>
+ * The images could be loaded either from the file system, or from the
+ * resources relative to a class.
+ *
+ * @author Haixing Hu
+ */
+public class MultiResolutionImageDataProvider implements ImageDataProvider {
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(MultiResolutionImageDataProvider.class);
+
+  /**
+   * The zoom level of the base image.
+   */
+  public static final int BASE_ZOOM = 100;
+
+  /**
+   * The image data indicating that the variant of a zoom level does not exist.
+   */
+  private static final ImageData MISSING = new ImageData(1, 1, 1,
+      new PaletteData(new RGB[] { new RGB(0, 0, 0) }));
+
+  private final Class<?> clazz;
+  private final String path;
+  private final Map<Integer, ImageData> cache;
+
+  /**
+   * Constructs a provider loading the images from the file system.
+   *
+   * @param path
+   *          the path of the image file of the 100% zoom level.
+   */
+  public MultiResolutionImageDataProvider(String path) {
+    this(null, path);
+  }
+
+  /**
+   * Constructs a provider loading the images from the resources relative to a
+   * class.
+   *
+   * @param clazz
+   *          the {@link Class} relative to which to find the images, or null
+   *          to load the images from the file system.
+   * @param path
+   *          the path of the image of the 100% zoom level.
+   */
+  public MultiResolutionImageDataProvider(Class<?> clazz, String path) {
+    if (path == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    this.clazz = clazz;
+    this.path = path;
+    this.cache = new HashMap<Integer, ImageData>();
+  }
+
+  /**
+   * Gets the path of the image of the 100% zoom level.
+   *
+   * @return the path of the image of the 100% zoom level.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  /**
+   * Gets the {@link ImageData} of the specified zoom level.
+   *
+   * @param zoom
+   *          the zoom level in percent.
+   * @return the image data of the specified zoom level, or null if there is no
+   *         variant for that zoom level. The image data of the 100% zoom level
+   *         is never null.
+   * @exception org.eclipse.swt.SWTException
+   *              <ul>
+   *              <li>ERROR_IO - if the image of the 100% zoom level could not
+   *              be loaded</li>
+   *              </ul>
+   */
+  @Override
+  public ImageData getImageData(int zoom) {
+    final Integer key = Integer.valueOf(zoom);
+    synchronized (cache) {
+      final ImageData data = cache.get(key);
+      if (data != null) {
+        return (data == MISSING ? null : data);
+      }
+    }
+    final ImageData data = load(zoom);
+    synchronized (cache) {
+      cache.put(key, (data == null ? MISSING : data));
+    }
+    return data;
+  }
+
+  private ImageData load(int zoom) {
+    if (zoom == BASE_ZOOM) {
+      final ImageData data = load(path);
+      if (data == null) {
+        SWT.error(SWT.ERROR_IO, null, " [" + path + "]");
+      }
+      return data;
+    }
+    final String variant = getVariantPath(path, zoom);
+    if (variant == null) {
+      return null;
+    }
+    final ImageData data = load(variant);
+    if (data != null) {
+      LOGGER.debug("Loaded the {}% variant of the image: {}", zoom, variant);
+    }
+    return data;
+  }
+
+  private ImageData load(String p) {
+    InputStream stream = null;
+    try {
+      if (clazz != null) {
+        stream = clazz.getResourceAsStream(p);
+      } else if (new File(p).isFile()) {
+        stream = new FileInputStream(p);
+      }
+      if (stream == null) {
+        return null;
+      }
+      return new ImageData(stream);
+    } catch (final Exception e) {
+      LOGGER.error("Failed to load the image from: {}", p, e);
+      return null;
+    } finally {
+      if (stream != null) {
+        try {
+          stream.close();
+        } catch (final IOException e) {
+          //  ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the path of the variant of an image for the specified zoom level.
+   *
+   * @param path
+   *          the path of the image of the 100% zoom level.
+   * @param zoom
+   *          the zoom level in percent.
+   * @return the path of the variant, or null if there is no naming convention
+   *         for the specified zoom level.
+   */
+  public static String getVariantPath(String path, int zoom) {
+    final String suffix;
+    switch (zoom) {
+    case 150:
+      suffix = "@1.5x";
+      break;
+    case 200:
+      suffix = "@2x";
+      break;
+    default:
+      return null;
+    }
+    final int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+    final int dot = path.lastIndexOf('.');
+    if (dot > slash) {
+      return path.substring(0, dot) + suffix + path.substring(dot);
+    } else {
+      return path + suffix;
+    }
+  }
+}
@@ -0,0 +1,314 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.swt.graphics.Resource;
+import org.eclipse.swt.widgets.Display;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the native resources (images, paths, regions, cursors, etc.) created
+ * by this library.
+ * <p>
+ * The tracking is disabled by default and costs nothing in that case. It can
+ * be enabled either by setting the system property
+ * {@value #ENABLED_PROPERTY} to <code>true</code> or by calling
+ * {@link #setEnabled(boolean)} before the resources are created. Once enabled,
+ * every resource passed to {@link #track(Resource)} is recorded together with
+ * the stack trace of its allocation site. The resources still alive, that is,
+ * not disposed, could be reported grouped by their allocation sites, either on
+ * demand by calling {@link #report()}, or automatically when the display
+ * owning the resources is disposed.
+ * <p>
+ * The tracked resources are strongly referenced until they are disposed, so
+ * a resource which is garbage collected without being disposed, i.e., a
+ * leaked native handle, is still reported.
+ * <p>
+ * The resources owned by a per-display cache, which disposes them when the
+ * display is disposed, should be recorded by {@link #trackCached(Resource)}.
+ * They are reported on demand, but not by the automatic report made when the
+ * display is disposed, which runs before the caches release their resources.
+ * <p>
+ * A typical use is to enable the tracking in a soak test, and check that the
+ * number returned by {@link #getLiveCount()} stays flat.
+ *
+ * @author Haixing Hu
+ */
+public final class ResourceTracker {
+
+  /**
+   * The name of the system property used to enable the tracking.
+   */
+  public static final String ENABLED_PROPERTY = "swt-widgets.trackResources";
+
+  private static final Logger LOGGER = LoggerFactory
+      .getLogger(ResourceTracker.class);
+
+  /**
+   * The number of records after which the disposed or collected resources are
+   * purged from the records.
+   */
+  private static final int INITIAL_PURGE_THRESHOLD = 1024;
+
+  private static volatile boolean enabled = Boolean
+      .getBoolean(ENABLED_PROPERTY);
+
+  private static final List<Record> records = new ArrayList<Record>();
+
+  private static final Map<Display, Boolean> reportingDisplays =
+      new WeakHashMap<Display, Boolean>();
+
+  private static int purgeThreshold = INITIAL_PURGE_THRESHOLD;
+
+  private ResourceTracker() {}
+
+  /**
+   * Tests whether the tracking is enabled.
+   *
+   * @return true if the tracking is enabled; false otherwise.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Enables or disables the tracking.
+   * <p>
+   * Note that disabling the tracking does not clear the existing records.
+   *
+   * @param value
+   *          true to enable the tracking; false to disable it.
+   */
+  public static void setEnabled(boolean value) {
+    enabled = value;
+  }
+
+  /**
+   * Records the allocation site of a newly created resource.
+   * <p>
+   * If the tracking is disabled, this function does nothing.
+   *
+   * @param resource
+   *          the newly created resource, may be null.
+   * @return the resource itself, so that this function could be used inline.
+   */
+  public static <T extends Resource> T track(T resource) {
+    return doTrack(resource, false);
+  }
+
+  /**
+   * Records the allocation site of a newly created resource owned by a
+   * per-display cache, which disposes it when the display is disposed.
+   * <p>
+   * Such a resource is excluded from the report made automatically when the
+   * display is disposed. If the tracking is disabled, this function does
+   * nothing.
+   *
+   * @param resource
+   *          the newly created resource, may be null.
+   * @return the resource itself, so that this function could be used inline.
+   */
+  public static <T extends Resource> T trackCached(T resource) {
+    return doTrack(resource, true);
+  }
+
+  private static <T extends Resource> T doTrack(T resource, boolean cached) {
+    if (enabled && (resource != null)) {
+      final Record record = new Record(resource, new Throwable(), cached);
+      final Display display = getDisplay(resource);
+      synchronized (records) {
+        records.add(record);
+        if (records.size() >= purgeThreshold) {
+          purge();
+          purgeThreshold = Math.max(INITIAL_PURGE_THRESHOLD,
+              records.size() * 2);
+        }
+        if ((display != null) && (! reportingDisplays.containsKey(display))) {
+          reportingDisplays.put(display, Boolean.TRUE);
+          installDisposeReport(display);
+        }
+      }
+    }
+    return resource;
+  }
+
+  /**
+   * Gets the number of tracked resources which are still alive.
+   *
+   * @return the number of tracked resources which are not disposed.
+   */
+  public static int getLiveCount() {
+    synchronized (records) {
+      purge();
+      return records.size();
+    }
+  }
+
+  /**
+   * Gets the tracked resources which are still alive, grouped by their
+   * allocation sites.
+   *
+   * @return a map from the stack traces of allocation sites to the number of
+   *         live resources allocated at that site. The entries are sorted in
+   *         the order of first allocation.
+   */
+  public static Map<String, Integer> getLiveResources() {
+    return getLiveResources(true);
+  }
+
+  private static Map<String, Integer> getLiveResources(boolean includeCached) {
+    final Map<String, Integer> result = new LinkedHashMap<String, Integer>();
+    synchronized (records) {
+      purge();
+      for (final Record record : records) {
+        if (record.cached && (! includeCached)) {
+          continue;
+        }
+        final String site = record.getSite();
+        final Integer count = result.get(site);
+        result.put(site, (count == null ? 1 : count + 1));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Logs the tracked resources which are still alive, grouped by their
+   * allocation sites.
+   *
+   * @return the number of live resources reported.
+   */
+  public static int report() {
+    return report(true);
+  }
+
+  private static int report(boolean includeCached) {
+    final Map<String, Integer> live = getLiveResources(includeCached);
+    int total = 0;
+    for (final Map.Entry<String, Integer> entry : live.entrySet()) {
+      total += entry.getValue();
+      LOGGER.warn("{} live resource(s) allocated at:\n{}", entry.getValue(),
+          entry.getKey());
+    }
+    LOGGER.info("{} live resource(s) in {} allocation site(s).", total,
+        live.size());
+    return total;
+  }
+
+  /**
+   * Clears all records.
+   */
+  public static void clear() {
+    synchronized (records) {
+      records.clear();
+      purgeThreshold = INITIAL_PURGE_THRESHOLD;
+    }
+  }
+
+  /**
+   * Removes the records of disposed resources.
+   * <p>
+   * Must be called while holding the lock of the records.
+   */
+  private static void purge() {
+    final Iterator<Record> iter = records.iterator();
+    while (iter.hasNext()) {
+      if (! iter.next().isAlive()) {
+        iter.remove();
+      }
+    }
+  }
+
+  private static Display getDisplay(Resource resource) {
+    if (resource.getDevice() instanceof Display) {
+      return (Display) resource.getDevice();
+    } else {
+      return null;
+    }
+  }
+
+  private static void installDisposeReport(final Display display) {
+    final Runnable runnable = new Runnable() {
+      @Override
+      public void run() {
+        //  the resources are checked before the display disposes its own
+        //  resources, and possibly before the per-display caches dispose
+        //  theirs, hence the cached resources are not reported.
+        LOGGER.info("The display is disposed, reporting the live resources.");
+        report(false);
+      }
+    };
+    if (display.getThread() == Thread.currentThread()) {
+      display.disposeExec(runnable);
+    } else {
+      display.asyncExec(new Runnable() {
+        @Override
+        public void run() {
+          display.disposeExec(runnable);
+        }
+      });
+    }
+  }
+
+  /**
+   * Stores the allocation site of a tracked resource.
+   */
+  private static final class Record {
+    //  a strong reference, so that a resource collected without being
+    //  disposed is still reported as a leak
+    private final Resource resource;
+    private final Throwable allocation;
+    final boolean cached;
+    private String site;
+
+    Record(Resource resource, Throwable allocation, boolean cached) {
+      this.resource = resource;
+      this.allocation = allocation;
+      this.cached = cached;
+      this.site = null;
+    }
+
+    boolean isAlive() {
+      return ! resource.isDisposed();
+    }
+
+    String getSite() {
+      if (site == null) {
+        final StringWriter writer = new StringWriter();
+        final PrintWriter printer = new PrintWriter(writer);
+        final StackTraceElement[] trace = allocation.getStackTrace();
+        //  skip the frames of ResourceTracker.doTrack() and track() or
+        //  trackCached()
+        for (int i = 2; i < trace.length; ++i) {
+          printer.print("\tat ");
+          printer.println(trace[i]);
+        }
+        printer.flush();
+        site = writer.toString();
+      }
+      return site;
+    }
+  }
+}
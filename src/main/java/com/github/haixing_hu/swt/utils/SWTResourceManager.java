@@ -11,15 +11,18 @@
  *******************************************************************************/
 package com.github.haixing_hu.swt.utils;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Cursor;
 import org.eclipse.swt.graphics.Font;
@@ -145,7 +148,7 @@ public class SWTResourceManager {
   public static Color getColor(Display display, RGB rgb) {
     Color color = colorCache.get(rgb);
     if (color == null) {
-      color = new Color(display, rgb);
+      color = ResourceTracker.trackCached(new Color(display, rgb));
       colorCache.put(rgb, color);
     }
     return color;
@@ -242,9 +245,10 @@ public class SWTResourceManager {
     try {
       final ImageData data = new ImageData(stream);
       if (data.transparentPixel > 0) {
-        return new Image(display, data, data.getTransparencyMask());
+        return ResourceTracker.track(new Image(display, data,
+            data.getTransparencyMask()));
       }
-      return new Image(display, data);
+      return ResourceTracker.track(new Image(display, data));
     } finally {
       stream.close();
     }
@@ -263,6 +267,10 @@ public class SWTResourceManager {
 
   /**
    * Gets an {@link Image} stored in the file at the specified path.
+   * <p>
+   * The high resolution variants of the image, e.g.,
+   * <code>"name@2x.png"</code> and <code>"name@1.5x.png"</code>, are used on
+   * HiDPI displays if they exist. See {@link MultiResolutionImageDataProvider}.
    *
    * @param display
    *          a specified display.
@@ -274,11 +282,13 @@ public class SWTResourceManager {
     Image image = imageCache.get(path);
     if (image == null) {
       try {
-        image = getImage(display, new FileInputStream(path));
+        image = ResourceTracker.trackCached(new Image(display,
+            new MultiResolutionImageDataProvider(path)));
         imageCache.put(path, image);
       } catch (final Exception e) {
         LOGGER.error("Failed to load the image from path: {}", path, e);
-        image = getMissingImage();
+        image = ResourceTracker.trackCached(
+            createMissingImage(MISSING_IMAGE_SIZE, MISSING_IMAGE_SIZE));
         imageCache.put(path, image);
       }
     }
@@ -303,6 +313,10 @@ public class SWTResourceManager {
   /**
    * Gets an {@link Image} stored in the file at the specified path relative
    * to the specified class.
+   * <p>
+   * The high resolution variants of the image, e.g.,
+   * <code>"name@2x.png"</code> and <code>"name@1.5x.png"</code>, are used on
+   * HiDPI displays if they exist. See {@link MultiResolutionImageDataProvider}.
    *
    * @param display
    *          a specified display.
@@ -317,17 +331,267 @@ public class SWTResourceManager {
     Image image = imageCache.get(key);
     if (image == null) {
       try {
-        image = getImage(display, clazz.getResourceAsStream(path));
+        image = ResourceTracker.trackCached(new Image(display,
+            new MultiResolutionImageDataProvider(clazz, path)));
         imageCache.put(key, image);
       } catch (final Exception e) {
         LOGGER.error("Failed to load the image from resource: {}", path, e);
-        image = getMissingImage();
+        image = ResourceTracker.trackCached(
+            createMissingImage(MISSING_IMAGE_SIZE, MISSING_IMAGE_SIZE));
         imageCache.put(key, image);
       }
     }
     return image;
   }
 
+  /**
+   * Gets a scaled copy of the {@link Image} stored in the file at the
+   * specified path.
+   * <p>
+   * The scaled copy is computed only once with the area averaging algorithm,
+   * and then cached together with the other images, so that painting the image
+   * is a simple blit. Use
+   * {@link #prefetchImage(Display, String, int, int, Runnable)} to compute the
+   * scaled copy in a background thread.
+   *
+   * @param path
+   *          the path to the image file
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @return the scaled copy of the {@link Image} stored in the file at the
+   *         specified path.
+   */
+  public static Image getImage(String path, int width, int height) {
+    return getImage(Display.getCurrent(), path, width, height);
+  }
+
+  /**
+   * Gets a scaled copy of the {@link Image} stored in the file at the
+   * specified path.
+   * <p>
+   * The scaled copy is computed only once with the area averaging algorithm,
+   * and then cached together with the other images, so that painting the image
+   * is a simple blit. Use
+   * {@link #prefetchImage(Display, String, int, int, Runnable)} to compute the
+   * scaled copy in a background thread.
+   *
+   * @param display
+   *          a specified display.
+   * @param path
+   *          the path to the image file
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @return the scaled copy of the {@link Image} stored in the file at the
+   *         specified path.
+   */
+  public static Image getImage(Display display, String path, int width,
+      int height) {
+    return getScaledImage(display, null, path, width, height);
+  }
+
+  /**
+   * Gets a scaled copy of the {@link Image} stored in the file at the
+   * specified path relative to the specified class.
+   *
+   * @param clazz
+   *          the {@link Class} relative to which to find the image
+   * @param path
+   *          the path to the image file, if starts with <code>'/'</code>
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @return the scaled copy of the {@link Image} stored in the file at the
+   *         specified path.
+   * @see #getImage(Display, String, int, int)
+   */
+  public static Image getImage(Class<?> clazz, String path, int width,
+      int height) {
+    return getImage(Display.getCurrent(), clazz, path, width, height);
+  }
+
+  /**
+   * Gets a scaled copy of the {@link Image} stored in the file at the
+   * specified path relative to the specified class.
+   *
+   * @param display
+   *          a specified display.
+   * @param clazz
+   *          the {@link Class} relative to which to find the image
+   * @param path
+   *          the path to the image file, if starts with <code>'/'</code>
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @return the scaled copy of the {@link Image} stored in the file at the
+   *         specified path.
+   * @see #getImage(Display, String, int, int)
+   */
+  public static Image getImage(Display display, Class<?> clazz, String path,
+      int width, int height) {
+    if (clazz == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    return getScaledImage(display, clazz, path, width, height);
+  }
+
+  /**
+   * Computes a scaled copy of the {@link Image} stored in the file at the
+   * specified path in a background thread.
+   * <p>
+   * This function must be called in the UI thread of the display. The image
+   * file is decoded and scaled in a background thread, and then the image is
+   * created and cached in the UI thread, after which the callback is called in
+   * the UI thread. The cached image could be then retrieved by
+   * {@link #getImage(Display, String, int, int)} without any delay.
+   *
+   * @param display
+   *          a specified display.
+   * @param path
+   *          the path to the image file
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @param callback
+   *          the callback to be called in the UI thread after the scaled image
+   *          is cached, or null if not needed.
+   */
+  public static void prefetchImage(Display display, String path, int width,
+      int height, Runnable callback) {
+    prefetchScaledImage(display, null, path, width, height, callback);
+  }
+
+  /**
+   * Computes a scaled copy of the {@link Image} stored in the file at the
+   * specified path relative to the specified class in a background thread.
+   *
+   * @param display
+   *          a specified display.
+   * @param clazz
+   *          the {@link Class} relative to which to find the image
+   * @param path
+   *          the path to the image file, if starts with <code>'/'</code>
+   * @param width
+   *          the width of the scaled image.
+   * @param height
+   *          the height of the scaled image.
+   * @param callback
+   *          the callback to be called in the UI thread after the scaled image
+   *          is cached, or null if not needed.
+   * @see #prefetchImage(Display, String, int, int, Runnable)
+   */
+  public static void prefetchImage(Display display, Class<?> clazz,
+      String path, int width, int height, Runnable callback) {
+    if (clazz == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    prefetchScaledImage(display, clazz, path, width, height, callback);
+  }
+
+  /**
+   * Maps the keys of the scaled images being computed in the background to
+   * their image data providers.
+   */
+  private static Map<String, ScaledImageDataProvider> pendingScaledImages =
+      new HashMap<String, ScaledImageDataProvider>();
+
+  private static ExecutorService imageLoader;
+
+  private static String getScaledImageKey(Class<?> clazz, String path,
+      int width, int height) {
+    final String key = (clazz == null ? path : clazz.getName() + '|' + path);
+    return key + '|' + width + 'x' + height;
+  }
+
+  private static Image getScaledImage(Display display, Class<?> clazz,
+      String path, int width, int height) {
+    final String key = getScaledImageKey(clazz, path, width, height);
+    Image image = imageCache.get(key);
+    if (image == null) {
+      ScaledImageDataProvider provider = pendingScaledImages.remove(key);
+      if (provider == null) {
+        provider = new ScaledImageDataProvider(
+            new MultiResolutionImageDataProvider(clazz, path), width, height);
+      }
+      try {
+        image = ResourceTracker.trackCached(new Image(display, provider));
+      } catch (final Exception e) {
+        LOGGER.error("Failed to load the image from: {}", path, e);
+        image = ResourceTracker.trackCached(createMissingImage(width, height));
+      }
+      imageCache.put(key, image);
+    }
+    return image;
+  }
+
+  private static void prefetchScaledImage(final Display display,
+      final Class<?> clazz, final String path, final int width,
+      final int height, final Runnable callback) {
+    if (display.getThread() != Thread.currentThread()) {
+      SWT.error(SWT.ERROR_THREAD_INVALID_ACCESS);
+    }
+    final String key = getScaledImageKey(clazz, path, width, height);
+    if (imageCache.containsKey(key) || pendingScaledImages.containsKey(key)) {
+      if (callback != null) {
+        display.asyncExec(callback);
+      }
+      return;
+    }
+    final ScaledImageDataProvider provider = new ScaledImageDataProvider(
+        new MultiResolutionImageDataProvider(clazz, path), width, height);
+    pendingScaledImages.put(key, provider);
+    getImageLoader().execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          provider.getImageData(MultiResolutionImageDataProvider.BASE_ZOOM);
+        } catch (final Exception e) {
+          LOGGER.error("Failed to load the image from: {}", path, e);
+        }
+        if (display.isDisposed()) {
+          return;
+        }
+        try {
+          display.asyncExec(new Runnable() {
+            @Override
+            public void run() {
+              //  the entry may have been consumed by getScaledImage()
+              if (pendingScaledImages.get(key) == provider) {
+                getScaledImage(display, clazz, path, width, height);
+              }
+              if (callback != null) {
+                callback.run();
+              }
+            }
+          });
+        } catch (final SWTException e) {
+          //  the display is disposed in the meanwhile
+        }
+      }
+    });
+  }
+
+  private static synchronized ExecutorService getImageLoader() {
+    if (imageLoader == null) {
+      imageLoader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+          final Thread thread = new Thread(runnable,
+              SWTResourceManager.class.getSimpleName() + "-image-loader");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return imageLoader;
+  }
+
   /**
    * Gets the placeholder image for missing image with the default width and
    * height.
@@ -352,6 +616,10 @@ public class SWTResourceManager {
    *         manager, therefore it should be disposed by the function caller.
    */
   public static Image getMissingImage(int width, int height) {
+    return ResourceTracker.track(createMissingImage(width, height));
+  }
+
+  private static Image createMissingImage(int width, int height) {
     final Image image = new Image(Display.getCurrent(), width, height);
     final GC gc = new GC(image);
     gc.setBackground(Display.getCurrent().getSystemColor(SWT.COLOR_RED));
@@ -470,7 +738,8 @@ public class SWTResourceManager {
     if (result == null) {
       final Rectangle bib = baseImage.getBounds();
       final Rectangle dib = decorator.getBounds();
-      result = new Image(display, bib.width, bib.height);
+      result = ResourceTracker.trackCached(new Image(display, bib.width,
+          bib.height));
       final GC gc = new GC(result);
       gc.drawImage(baseImage, 0, 0);
       if (corner == TOP_LEFT) {
@@ -498,6 +767,7 @@ public class SWTResourceManager {
         image.dispose();
       }
       imageCache.clear();
+      pendingScaledImages.clear();
     }
     // dispose decorated images
     for (int i = 0; i < m_decoratedImageMap.length; i++) {
@@ -680,7 +950,7 @@ public class SWTResourceManager {
               + " (probably on a non-Windows platform). ", e);
         }
       }
-      font = new Font(display, fontData);
+      font = ResourceTracker.trackCached(new Font(display, fontData));
       fontCache.put(fontName, font);
     }
     return font;
@@ -1049,7 +1319,7 @@ public class SWTResourceManager {
     final Integer key = Integer.valueOf(id);
     Cursor cursor = cursorCache.get(key);
     if (cursor == null) {
-      cursor = new Cursor(display, id);
+      cursor = ResourceTracker.trackCached(new Cursor(display, id));
       cursorCache.put(key, cursor);
     }
     return cursor;
@@ -0,0 +1,119 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageDataProvider;
+
+/**
+ * An {@link ImageDataProvider} which provides a scaled copy of the images
+ * provided by a {@link MultiResolutionImageDataProvider}.
+ * <p>
+ * The scaled image of each zoom level is computed from the source image of the
+ * same zoom level if it exists, otherwise from the source image of the 100%
+ * zoom level, using the area averaging algorithm of
+ * {@link SWTGraphicUtils#scale(ImageData, int, int)}. The result is computed
+ * only once per zoom level and then cached.
+ * <p>
+ * The computation does not use any native resource, therefore
+ * {@link #getImageData(int)} could be called in a background thread to
+ * prepare the image data before the image is created in the UI thread.
+ *
+ * @author Haixing Hu
+ */
+public class ScaledImageDataProvider implements ImageDataProvider {
+
+  private final MultiResolutionImageDataProvider source;
+  private final int width;
+  private final int height;
+  private final Map<Integer, ImageData> cache;
+
+  /**
+   * Constructs a scaled image data provider.
+   *
+   * @param source
+   *          the provider of the source images.
+   * @param width
+   *          the width of the scaled image at the 100% zoom level.
+   * @param height
+   *          the height of the scaled image at the 100% zoom level.
+   */
+  public ScaledImageDataProvider(MultiResolutionImageDataProvider source,
+      int width, int height) {
+    if (source == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if ((width <= 0) || (height <= 0)) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    this.source = source;
+    this.width = width;
+    this.height = height;
+    this.cache = new HashMap<Integer, ImageData>();
+  }
+
+  /**
+   * Gets the width of the scaled image at the 100% zoom level.
+   *
+   * @return the width of the scaled image at the 100% zoom level.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the scaled image at the 100% zoom level.
+   *
+   * @return the height of the scaled image at the 100% zoom level.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Gets the scaled {@link ImageData} of the specified zoom level.
+   * <p>
+   * This function is synchronized, so that concurrent callers asking for the
+   * same zoom level wait for the first one instead of scaling the image again.
+   *
+   * @param zoom
+   *          the zoom level in percent.
+   * @return the scaled image data of the specified zoom level.
+   * @exception org.eclipse.swt.SWTException
+   *              <ul>
+   *              <li>ERROR_IO - if the source image could not be loaded</li>
+   *              </ul>
+   */
+  @Override
+  public synchronized ImageData getImageData(int zoom) {
+    final Integer key = Integer.valueOf(zoom);
+    ImageData data = cache.get(key);
+    if (data == null) {
+      ImageData src = source.getImageData(zoom);
+      if (src == null) {
+        src = source.getImageData(MultiResolutionImageDataProvider.BASE_ZOOM);
+      }
+      final int w = Math.max(1, (width * zoom) / 100);
+      final int h = Math.max(1, (height * zoom) / 100);
+      data = SWTGraphicUtils.scale(src, w, h);
+      cache.put(key, data);
+    }
+    return data;
+  }
+}
@@ -0,0 +1,388 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Drawable;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.TextLayout;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Shortens texts to fit a given width by replacing a part of them with an
+ * ellipsis, shared by all widgets of a display.
+ * <p>
+ * The widths of all the prefixes of a text are computed in a single
+ * {@link TextLayout} pass, and the cut points are found by binary searches
+ * over them, so shortening a text costs one native layout instead of one
+ * measurement per character. Both the prefix widths, keyed by the font and the
+ * text, and the shortened texts, keyed by the font, the text, the maximum
+ * width and the elision mode, are cached; hence re-laying out a tool bar with
+ * long labels is cheap. The fonts are identified by their {@link FontData},
+ * since a new font may get the handle of a disposed font; the font data of
+ * each font is queried only once.
+ * <p>
+ * The caches are bounded; the least recently used entries are discarded when
+ * they are full. They are cleared when the display is disposed. The instances
+ * of this class must be accessed in the UI thread of its display.
+ *
+ * @author Haixing Hu
+ */
+public final class TextElider {
+
+  /**
+   * The ellipsis replacing the removed characters.
+   */
+  public static final String ELLIPSIS = "...";
+
+  /**
+   * The elision mode removing the characters at the end of a text.
+   */
+  public static final int ELIDE_END = 0;
+
+  /**
+   * The elision mode removing the characters in the middle of a text.
+   */
+  public static final int ELIDE_MIDDLE = 1;
+
+  /**
+   * The maximum number of the shortened texts in a cache.
+   */
+  public static final int MAX_ENTRIES = 1024;
+
+  /**
+   * The maximum number of the prefix widths arrays in a cache.
+   */
+  public static final int MAX_LAYOUTS = 256;
+
+  private static final String DATA_KEY = TextElider.class.getName();
+
+  /**
+   * Gets the text elider of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the text elider of the specified display.
+   */
+  public static TextElider getInstance(final Display display) {
+    TextElider elider = (TextElider) display.getData(DATA_KEY);
+    if (elider == null) {
+      elider = new TextElider(display);
+      display.setData(DATA_KEY, elider);
+      final TextElider theElider = elider;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theElider.clear();
+        }
+      });
+    }
+    return elider;
+  }
+
+  private final FontDataCache fontDataCache;
+  private final Map<Key, String> results;
+  private final Map<Key, int[]> widths;
+
+  private TextElider(final Display display) {
+    fontDataCache = FontDataCache.getInstance(display);
+    results = new LinkedHashMap<Key, String>(64, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+    widths = new LinkedHashMap<Key, int[]>(64, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+        return size() > MAX_LAYOUTS;
+      }
+    };
+  }
+
+  /**
+   * Shortens a text to fit a given width.
+   *
+   * @param drawable
+   *          the drawable on which the text is drawn, used to create the
+   *          {@link GC} if the result is not cached.
+   * @param font
+   *          the font used to draw the text.
+   * @param text
+   *          the text to be shortened.
+   * @param maxWidth
+   *          the maximum width of the shortened text, in pixels.
+   * @param mode
+   *          the elision mode, which is either {@link #ELIDE_END} or
+   *          {@link #ELIDE_MIDDLE}.
+   * @return the text itself if it fits the maximum width; otherwise the
+   *         shortened text with the {@link #ELLIPSIS}.
+   */
+  public String elide(Drawable drawable, Font font, String text, int maxWidth,
+      int mode) {
+    if ((drawable == null) || (font == null) || (text == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (font.isDisposed()) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final Key key = new Key(fontDataCache.get(font), text, maxWidth, mode);
+    String result = results.get(key);
+    if (result == null) {
+      final GC gc = new GC(drawable);
+      try {
+        gc.setFont(font);
+        result = doElide(gc, font, key);
+      } finally {
+        gc.dispose();
+      }
+      results.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Shortens a text drawn by a graphic context to fit a given width, with the
+   * current font of the graphic context.
+   * <p>
+   * If the result is not cached, it is computed with the specified graphic
+   * context, hence no new {@link GC} is created.
+   *
+   * @param gc
+   *          the graphic context on which the text is drawn.
+   * @param text
+   *          the text to be shortened.
+   * @param maxWidth
+   *          the maximum width of the shortened text, in pixels.
+   * @param mode
+   *          the elision mode, which is either {@link #ELIDE_END} or
+   *          {@link #ELIDE_MIDDLE}.
+   * @return the text itself if it fits the maximum width; otherwise the
+   *         shortened text with the {@link #ELLIPSIS}.
+   */
+  public String elide(GC gc, String text, int maxWidth, int mode) {
+    if ((gc == null) || (text == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    final Font font = gc.getFont();
+    final Key key = new Key(fontDataCache.get(font), text, maxWidth, mode);
+    String result = results.get(key);
+    if (result == null) {
+      result = doElide(gc, font, key);
+      results.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Removes all the cached results computed with a font.
+   * <p>
+   * The results of all the fonts with the same font data as the specified
+   * font are removed. This function is not needed to be called before
+   * disposing a font; it only releases the memory of the cached results.
+   *
+   * @param font
+   *          the font whose cached results are to be removed.
+   */
+  public void invalidate(Font font) {
+    if (font == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (font.isDisposed()) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final FontData[] fontData = fontDataCache.get(font);
+    final Iterator<Key> iter = results.keySet().iterator();
+    while (iter.hasNext()) {
+      if (Arrays.equals(iter.next().fontData, fontData)) {
+        iter.remove();
+      }
+    }
+    final Iterator<Key> iter2 = widths.keySet().iterator();
+    while (iter2.hasNext()) {
+      if (Arrays.equals(iter2.next().fontData, fontData)) {
+        iter2.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all the cached results.
+   */
+  public void clear() {
+    results.clear();
+    widths.clear();
+  }
+
+  /**
+   * Gets the number of cached results.
+   *
+   * @return the number of cached results.
+   */
+  public int size() {
+    return results.size();
+  }
+
+  private String doElide(GC gc, Font font, Key key) {
+    final String text = key.text;
+    final int n = text.length();
+    final int[] prefix = getPrefixWidths(gc, font, key);
+    final int total = prefix[n];
+    if (total <= key.maxWidth) {
+      return text;
+    }
+    final int available = key.maxWidth - gc.stringExtent(ELLIPSIS).x;
+    if (key.mode == ELIDE_MIDDLE) {
+      //  find the largest number of kept characters k, the first half of
+      //  which are kept at the beginning, and the rest at the end
+      int low = 0;
+      int high = n;
+      while (low < high) {
+        final int k = (low + high + 1) >>> 1;
+        final int head = (k + 1) / 2;
+        final int tail = k - head;
+        if ((prefix[head] + (total - prefix[n - tail])) <= available) {
+          low = k;
+        } else {
+          high = k - 1;
+        }
+      }
+      final int head = (low + 1) / 2;
+      return text.substring(0, adjustBackward(text, head)) + ELLIPSIS
+          + text.substring(adjustForward(text, n - (low - head)));
+    } else {
+      //  find the longest prefix fitting the available width
+      int low = 0;
+      int high = n;
+      while (low < high) {
+        final int k = (low + high + 1) >>> 1;
+        if (prefix[k] <= available) {
+          low = k;
+        } else {
+          high = k - 1;
+        }
+      }
+      return text.substring(0, adjustBackward(text, low)) + ELLIPSIS;
+    }
+  }
+
+  /**
+   * Gets the widths of all the prefixes of a text.
+   *
+   * @return an array of n + 1 widths, where n is the length of the text, and
+   *         the i-th width is the width of the first i characters.
+   */
+  private int[] getPrefixWidths(GC gc, Font font, Key resultKey) {
+    final String text = resultKey.text;
+    final Key key = new Key(resultKey.fontData, text, 0, 0);
+    int[] prefix = widths.get(key);
+    if (prefix == null) {
+      final int n = text.length();
+      prefix = new int[n + 1];
+      final TextLayout layout = new TextLayout(gc.getDevice());
+      try {
+        layout.setFont(font);
+        layout.setText(text);
+        for (int i = 1; i < n; ++i) {
+          prefix[i] = layout.getLocation(i, false).x;
+        }
+        prefix[n] = layout.getBounds().width;
+      } finally {
+        layout.dispose();
+      }
+      //  keep the array monotonic in case of kerning or bidirectional texts
+      for (int i = 1; i <= n; ++i) {
+        prefix[i] = Math.max(prefix[i], prefix[i - 1]);
+      }
+      widths.put(key, prefix);
+    }
+    return prefix;
+  }
+
+  /**
+   * Moves the end of a kept prefix off the middle of a surrogate pair.
+   */
+  private static int adjustBackward(String text, int index) {
+    if ((index > 0) && (index < text.length())
+        && Character.isLowSurrogate(text.charAt(index))) {
+      return index - 1;
+    }
+    return index;
+  }
+
+  /**
+   * Moves the start of a kept suffix off the middle of a surrogate pair.
+   */
+  private static int adjustForward(String text, int index) {
+    if ((index > 0) && (index < text.length())
+        && Character.isLowSurrogate(text.charAt(index))) {
+      return index + 1;
+    }
+    return index;
+  }
+
+  /**
+   * The key of the cached results and prefix widths.
+   * <p>
+   * A disposed font may pass its handle to a new font, so the font is
+   * identified by its font data rather than by itself.
+   */
+  private static final class Key {
+    final FontData[] fontData;
+    final String text;
+    final int maxWidth;
+    final int mode;
+    final int hash;
+
+    Key(FontData[] fontData, String text, int maxWidth, int mode) {
+      this.fontData = fontData;
+      this.text = text;
+      this.maxWidth = maxWidth;
+      this.mode = mode;
+      this.hash = (((((Arrays.hashCode(fontData) * 31) + text.hashCode()) * 31)
+          + maxWidth) * 31) + mode;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (! (obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return (hash == other.hash) && (maxWidth == other.maxWidth)
+          && (mode == other.mode) && text.equals(other.text)
+          && Arrays.equals(fontData, other.fontData);
+    }
+  }
+}
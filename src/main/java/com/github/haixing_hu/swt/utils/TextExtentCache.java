@@ -0,0 +1,274 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Drawable;
+import org.eclipse.swt.graphics.Font;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A cache of the extents of texts, shared by all widgets of a display.
+ * <p>
+ * Measuring a text needs to create a {@link GC} and calls the native text
+ * layout engine, which is expensive. This cache remembers the extents of texts
+ * keyed by the font, the text and the drawing flags, so that a widget which
+ * measures its texts on every layout or paint pays the cost only once.
+ * <p>
+ * The fonts are identified by their {@link FontData}, not by their handles,
+ * since a new font may get the handle of a disposed font. Hence the cache
+ * never returns the extents measured with a disposed font, and the extents
+ * are shared by the different instances of the same font. The font data of
+ * each font is queried only once, so a cache hit does no native work.
+ * <p>
+ * The cache is bounded; the least recently used entries are discarded when the
+ * cache is full. It is cleared when its display is disposed. The instances of
+ * this class must be accessed in the UI thread of its display.
+ *
+ * @author Haixing Hu
+ */
+public final class TextExtentCache {
+
+  private static final String DATA_KEY = TextExtentCache.class.getName();
+
+  /**
+   * The maximum number of entries in a cache.
+   */
+  public static final int MAX_ENTRIES = 2048;
+
+  /**
+   * The special flags indicating the extent is computed by
+   * {@link GC#stringExtent(String)}.
+   */
+  private static final int STRING_EXTENT = - 1;
+
+  /**
+   * Gets the text extent cache of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the text extent cache of the specified display.
+   */
+  public static TextExtentCache getInstance(final Display display) {
+    TextExtentCache cache = (TextExtentCache) display.getData(DATA_KEY);
+    if (cache == null) {
+      cache = new TextExtentCache(display);
+      display.setData(DATA_KEY, cache);
+      final TextExtentCache theCache = cache;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theCache.clear();
+        }
+      });
+    }
+    return cache;
+  }
+
+  private final FontDataCache fontDataCache;
+  private final Map<Key, Point> extents;
+
+  private TextExtentCache(final Display display) {
+    fontDataCache = FontDataCache.getInstance(display);
+    extents = new LinkedHashMap<Key, Point>(64, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Point> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+  }
+
+  /**
+   * Gets the extent of a text as computed by {@link GC#stringExtent(String)}.
+   *
+   * @param drawable
+   *          the drawable on which the text is drawn, used to create the
+   *          {@link GC} if the extent is not cached.
+   * @param font
+   *          the font used to draw the text.
+   * @param text
+   *          the text to be measured.
+   * @return the extent of the text. The returned point is a copy and could be
+   *         modified by the caller.
+   */
+  public Point stringExtent(Drawable drawable, Font font, String text) {
+    return getExtent(drawable, font, text, STRING_EXTENT);
+  }
+
+  /**
+   * Gets the extent of a text drawn by a graphic context, as computed by
+   * {@link GC#stringExtent(String)} with the current font of the graphic
+   * context.
+   * <p>
+   * If the extent is not cached, it is computed by the specified graphic
+   * context, hence no new {@link GC} is created.
+   *
+   * @param gc
+   *          the graphic context on which the text is drawn.
+   * @param text
+   *          the text to be measured.
+   * @return the extent of the text. The returned point is a copy and could be
+   *         modified by the caller.
+   */
+  public Point stringExtent(GC gc, String text) {
+    if ((gc == null) || (text == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    final Key key = new Key(fontDataCache.get(gc.getFont()), text,
+        STRING_EXTENT);
+    Point extent = extents.get(key);
+    if (extent == null) {
+      extent = gc.stringExtent(text);
+      extents.put(key, extent);
+    }
+    return new Point(extent.x, extent.y);
+  }
+
+  /**
+   * Gets the extent of a text as computed by
+   * {@link GC#textExtent(String, int)}.
+   *
+   * @param drawable
+   *          the drawable on which the text is drawn, used to create the
+   *          {@link GC} if the extent is not cached.
+   * @param font
+   *          the font used to draw the text.
+   * @param text
+   *          the text to be measured.
+   * @param flags
+   *          the flags specifying how to process the text.
+   * @return the extent of the text. The returned point is a copy and could be
+   *         modified by the caller.
+   */
+  public Point textExtent(Drawable drawable, Font font, String text,
+      int flags) {
+    return getExtent(drawable, font, text, flags);
+  }
+
+  /**
+   * Removes all the cached extents of the texts drawn with a font.
+   * <p>
+   * The extents of all the fonts with the same font data as the specified
+   * font are removed. This function is not needed to be called before
+   * disposing a font; it only releases the memory of the cached extents.
+   *
+   * @param font
+   *          the font whose cached extents are to be removed.
+   */
+  public void invalidate(Font font) {
+    if (font == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (font.isDisposed()) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final FontData[] fontData = fontDataCache.get(font);
+    final Iterator<Key> iter = extents.keySet().iterator();
+    while (iter.hasNext()) {
+      if (Arrays.equals(iter.next().fontData, fontData)) {
+        iter.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all the cached extents.
+   */
+  public void clear() {
+    extents.clear();
+  }
+
+  /**
+   * Gets the number of cached extents.
+   *
+   * @return the number of cached extents.
+   */
+  public int size() {
+    return extents.size();
+  }
+
+  private Point getExtent(Drawable drawable, Font font, String text,
+      int flags) {
+    if ((drawable == null) || (font == null) || (text == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (font.isDisposed()) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final Key key = new Key(fontDataCache.get(font), text, flags);
+    Point extent = extents.get(key);
+    if (extent == null) {
+      final GC gc = new GC(drawable);
+      try {
+        gc.setFont(font);
+        if (flags == STRING_EXTENT) {
+          extent = gc.stringExtent(text);
+        } else {
+          extent = gc.textExtent(text, flags);
+        }
+      } finally {
+        gc.dispose();
+      }
+      extents.put(key, extent);
+    }
+    return new Point(extent.x, extent.y);
+  }
+
+  private static final class Key {
+    final FontData[] fontData;
+    final String text;
+    final int flags;
+    final int hash;
+
+    Key(FontData[] fontData, String text, int flags) {
+      //  a disposed font may pass its handle to a new font, so the font is
+      //  identified by its font data rather than by itself
+      this.fontData = fontData;
+      this.text = text;
+      this.flags = flags;
+      this.hash = (((Arrays.hashCode(fontData) * 31) + text.hashCode()) * 31)
+          + flags;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (! (obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return (hash == other.hash) && (flags == other.flags)
+          && text.equals(other.text)
+          && Arrays.equals(fontData, other.fontData);
+    }
+  }
+}
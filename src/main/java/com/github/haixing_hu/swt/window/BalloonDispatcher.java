@@ -0,0 +1,176 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+
+/**
+ * The dispatcher of the mouse down events to the visible balloon windows of a
+ * display.
+ * <p>
+ * A single mouse down filter of the display is shared by all visible balloon
+ * windows. The clicked widget is mapped to the balloon window owning it by an
+ * identity hash index of the selection controls of the visible windows, so
+ * that the cost of a click does not depend on the number of balloon windows.
+ * The filter is installed when the first balloon window is shown, and removed
+ * when the last one is hidden.
+ * <p>
+ * The instances of this class must be accessed in the UI thread of its
+ * display.
+ *
+ * @author Haixing Hu
+ */
+final class BalloonDispatcher implements Listener {
+
+  private static final String DATA_KEY = BalloonDispatcher.class.getName();
+
+  /**
+   * Gets the balloon dispatcher of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the balloon dispatcher of the specified display.
+   */
+  static BalloonDispatcher getInstance(final Display display) {
+    BalloonDispatcher dispatcher = (BalloonDispatcher) display.getData(DATA_KEY);
+    if (dispatcher == null) {
+      dispatcher = new BalloonDispatcher(display);
+      display.setData(DATA_KEY, dispatcher);
+    }
+    return dispatcher;
+  }
+
+  private final Display display;
+  private final Map<Object, BalloonWindow> owners;
+  private final Set<BalloonWindow> windows;
+  private final Set<BalloonWindow> outsideClosers;
+  private boolean installed;
+
+  private BalloonDispatcher(final Display display) {
+    this.display = display;
+    this.owners = new IdentityHashMap<Object, BalloonWindow>();
+    this.windows = new LinkedHashSet<BalloonWindow>();
+    this.outsideClosers = new LinkedHashSet<BalloonWindow>();
+    this.installed = false;
+  }
+
+  /**
+   * Registers a visible balloon window.
+   *
+   * @param window
+   *          the balloon window to be registered.
+   * @param controls
+   *          the selection controls of the balloon window.
+   */
+  void register(BalloonWindow window, List<Object> controls) {
+    if (! windows.add(window)) {
+      return;
+    }
+    for (final Object control : controls) {
+      owners.put(control, window);
+    }
+    if (window.isCloseOnClickOutside()) {
+      outsideClosers.add(window);
+    }
+    if (! installed) {
+      display.addFilter(SWT.MouseDown, this);
+      installed = true;
+    }
+  }
+
+  /**
+   * Unregisters a balloon window which is hidden or disposed.
+   *
+   * @param window
+   *          the balloon window to be unregistered.
+   * @param controls
+   *          the selection controls of the balloon window.
+   */
+  void unregister(BalloonWindow window, List<Object> controls) {
+    if (! windows.remove(window)) {
+      return;
+    }
+    for (final Object control : controls) {
+      if (owners.get(control) == window) {
+        owners.remove(control);
+      }
+    }
+    outsideClosers.remove(window);
+    if (installed && windows.isEmpty()) {
+      if (! display.isDisposed()) {
+        display.removeFilter(SWT.MouseDown, this);
+      }
+      installed = false;
+    }
+  }
+
+  /**
+   * Adds a selection control to a registered balloon window.
+   *
+   * @param window
+   *          the balloon window.
+   * @param control
+   *          the new selection control of the balloon window.
+   */
+  void addControl(BalloonWindow window, Object control) {
+    if (windows.contains(window)) {
+      owners.put(control, window);
+    }
+  }
+
+  /**
+   * Updates whether a registered balloon window is closed by clicks outside
+   * it.
+   *
+   * @param window
+   *          the balloon window.
+   */
+  void updateCloseOnClickOutside(BalloonWindow window) {
+    if (windows.contains(window)) {
+      if (window.isCloseOnClickOutside()) {
+        outsideClosers.add(window);
+      } else {
+        outsideClosers.remove(window);
+      }
+    }
+  }
+
+  @Override
+  public void handleEvent(Event event) {
+    final BalloonWindow owner = owners.get(event.widget);
+    if (owner != null) {
+      owner.onMouseDownInside(event);
+    }
+    if (! outsideClosers.isEmpty()) {
+      //  closing a window unregisters it, so iterate over a copy
+      final List<BalloonWindow> closers = new ArrayList<BalloonWindow>(outsideClosers);
+      for (final BalloonWindow window : closers) {
+        if ((window != owner) && (! window.isDisposed())) {
+          window.close();
+        }
+      }
+    }
+  }
+}
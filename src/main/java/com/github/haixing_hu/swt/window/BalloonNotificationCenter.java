@@ -0,0 +1,452 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A notification center showing notifications in {@link BalloonWindow}s.
+ * <p>
+ * Notifications could be posted from any thread. The posted notifications are
+ * queued and handed to the UI thread by at most one pending
+ * {@link Display#asyncExec(Runnable)}, so that a burst of notifications costs
+ * a single round trip to the UI thread.
+ * <p>
+ * At most {@link #getMaxVisible()} balloons are visible at the same time; they
+ * are stacked upward from the bottom right corner of the monitor of the parent
+ * shell, and the other notifications wait in a bounded queue. A notification
+ * with the same title and message as a visible or waiting one is merged into
+ * it, with a counter shown in its title. The visible balloons expire after
+ * {@link #getDuration()} milliseconds, driven by a single timer of the
+ * display. The balloon windows are taken from a {@link BalloonWindowPool}.
+ *
+ * @author Haixing Hu
+ */
+public class BalloonNotificationCenter {
+
+  public static final int DEFAULT_MAX_VISIBLE = 3;
+
+  public static final int DEFAULT_DURATION = 5000;
+
+  public static final int DEFAULT_MAX_WAITING = 100;
+
+  public static final int DEFAULT_STYLE = SWT.ON_TOP | SWT.TOOL | SWT.TITLE | SWT.CLOSE;
+
+  private static final int MESSAGE_MAX_WIDTH = 300;
+
+  private static final int SCREEN_MARGIN = 8;
+
+  private static final int STACK_SPACING = 4;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BalloonNotificationCenter.class);
+
+  private final Shell parent;
+  private final Display display;
+  private final BalloonWindowPool pool;
+  private final int maxVisible;
+  private final int duration;
+  private final int maxWaiting;
+  private final ConcurrentLinkedQueue<Notification> posted;
+  private final AtomicBoolean flushScheduled;
+  private final ArrayList<Notification> visible;
+  private final ArrayDeque<Notification> waiting;
+  private final ArrayList<BalloonWindow> hookedWindows;
+  private final Runnable flusher;
+  private final Runnable expirer;
+  private final Listener hideListener;
+  private final Listener parentListener;
+  private boolean stackChanged;
+  private volatile boolean disposed;
+
+  /**
+   * Constructs a notification center with the default settings.
+   *
+   * @param parent
+   *    the parent shell of the balloon windows of the new notification center.
+   */
+  public BalloonNotificationCenter(Shell parent) {
+    this(parent, DEFAULT_MAX_VISIBLE, DEFAULT_DURATION);
+  }
+
+  /**
+   * Constructs a notification center.
+   *
+   * @param parent
+   *    the parent shell of the balloon windows of the new notification center.
+   * @param maxVisible
+   *    the maximum number of the balloons visible at the same time.
+   * @param duration
+   *    the number of milliseconds a balloon is visible before it expires.
+   */
+  public BalloonNotificationCenter(Shell parent, int maxVisible, int duration) {
+    if (parent == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (parent.isDisposed()) {
+      SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+    if ((maxVisible <= 0) || (duration <= 0)) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    this.parent = parent;
+    this.display = parent.getDisplay();
+    this.pool = new BalloonWindowPool(parent, DEFAULT_STYLE, maxVisible);
+    this.maxVisible = maxVisible;
+    this.duration = duration;
+    this.maxWaiting = DEFAULT_MAX_WAITING;
+    this.posted = new ConcurrentLinkedQueue<Notification>();
+    this.flushScheduled = new AtomicBoolean(false);
+    this.visible = new ArrayList<Notification>(maxVisible);
+    this.waiting = new ArrayDeque<Notification>();
+    this.hookedWindows = new ArrayList<BalloonWindow>(maxVisible);
+    this.stackChanged = false;
+    this.disposed = false;
+    this.flusher = new Runnable() {
+      @Override
+      public void run() {
+        flush();
+      }
+    };
+    this.expirer = new Runnable() {
+      @Override
+      public void run() {
+        expire();
+      }
+    };
+    //  closed by the user, by a click or by the close button
+    this.hideListener = new Listener() {
+      @Override
+      public void handleEvent(Event event) {
+        onBalloonHidden((Shell) event.widget);
+      }
+    };
+    this.parentListener = new Listener() {
+      @Override
+      public void handleEvent(Event event) {
+        dispose();
+      }
+    };
+    parent.addListener(SWT.Dispose, parentListener);
+  }
+
+  /**
+   * Gets the maximum number of the balloons visible at the same time.
+   *
+   * @return the maximum number of the balloons visible at the same time.
+   */
+  public int getMaxVisible() {
+    return maxVisible;
+  }
+
+  /**
+   * Gets the number of milliseconds a balloon is visible before it expires.
+   *
+   * @return the number of milliseconds a balloon is visible before it expires.
+   */
+  public int getDuration() {
+    return duration;
+  }
+
+  /**
+   * Posts a notification without icon.
+   * <p>
+   * This function could be called in any thread.
+   *
+   * @param title
+   *    the title of the notification.
+   * @param message
+   *    the message of the notification.
+   */
+  public void post(String title, String message) {
+    post(title, message, SWT.NONE);
+  }
+
+  /**
+   * Posts a notification.
+   * <p>
+   * This function could be called in any thread.
+   *
+   * @param title
+   *    the title of the notification.
+   * @param message
+   *    the message of the notification.
+   * @param icon
+   *    the system icon of the notification, which is one of
+   *    <code>SWT.ICON_ERROR</code>, <code>SWT.ICON_INFORMATION</code>,
+   *    <code>SWT.ICON_QUESTION</code>, <code>SWT.ICON_WARNING</code> and
+   *    <code>SWT.ICON_WORKING</code>; or <code>SWT.NONE</code> for no icon.
+   */
+  public void post(String title, String message, int icon) {
+    if ((title == null) || (message == null)) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (disposed) {
+      return;
+    }
+    posted.add(new Notification(title, message, icon));
+    scheduleFlush();
+  }
+
+  /**
+   * Tests whether this notification center is disposed.
+   *
+   * @return <code>true</code> if this notification center is disposed;
+   *    <code>false</code> otherwise.
+   */
+  public boolean isDisposed() {
+    return disposed;
+  }
+
+  /**
+   * Disposes this notification center, closes all of its balloons and
+   * discards the pending notifications.
+   * <p>
+   * This function must be called in the UI thread.
+   */
+  public void dispose() {
+    if (disposed) {
+      return;
+    }
+    disposed = true;
+    posted.clear();
+    waiting.clear();
+    if (! parent.isDisposed()) {
+      parent.removeListener(SWT.Dispose, parentListener);
+    }
+    if (! display.isDisposed()) {
+      display.timerExec(- 1, expirer);
+    }
+    for (final BalloonWindow window : hookedWindows) {
+      if (! window.isDisposed()) {
+        window.getShell().removeListener(SWT.Hide, hideListener);
+      }
+    }
+    hookedWindows.clear();
+    for (final Notification n : visible) {
+      if (! n.window.isDisposed()) {
+        n.window.getShell().dispose();
+      }
+    }
+    visible.clear();
+    pool.dispose();
+  }
+
+  private void scheduleFlush() {
+    if (flushScheduled.compareAndSet(false, true)) {
+      if (display.isDisposed()) {
+        return;
+      }
+      display.asyncExec(flusher);
+    }
+  }
+
+  /**
+   * Moves the posted notifications to the visible balloons and the waiting
+   * queue. Called in the UI thread.
+   */
+  private void flush() {
+    flushScheduled.set(false);
+    if (disposed || parent.isDisposed()) {
+      return;
+    }
+    Notification n;
+    while ((n = posted.poll()) != null) {
+      if (! merge(n)) {
+        waiting.addLast(n);
+        if (waiting.size() > maxWaiting) {
+          final Notification dropped = waiting.removeFirst();
+          LOGGER.debug("Drop the notification: {}", dropped.title);
+        }
+      }
+    }
+    showWaiting();
+    if (stackChanged) {
+      stackChanged = false;
+      restack();
+      for (final Notification v : visible) {
+        final Shell shell = v.window.getShell();
+        if (! shell.getVisible()) {
+          shell.setVisible(true);
+        }
+      }
+      scheduleExpiry();
+    }
+  }
+
+  private boolean merge(Notification n) {
+    for (final Notification v : visible) {
+      if (v.isSameAs(n)) {
+        ++v.count;
+        v.expiry = System.currentTimeMillis() + duration;
+        v.window.setTitle(v.getTitle());
+        stackChanged = true;
+        return true;
+      }
+    }
+    for (final Notification w : waiting) {
+      if (w.isSameAs(n)) {
+        ++w.count;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void showWaiting() {
+    while ((visible.size() < maxVisible) && (! waiting.isEmpty())) {
+      final Notification n = waiting.removeFirst();
+      n.window = createBalloon(n);
+      n.expiry = System.currentTimeMillis() + duration;
+      visible.add(n);
+      stackChanged = true;
+    }
+  }
+
+  private BalloonWindow createBalloon(Notification n) {
+    final BalloonWindow window = pool.acquire();
+    if (! hookedWindows.contains(window)) {
+      window.getShell().addListener(SWT.Hide, hideListener);
+      hookedWindows.add(window);
+    }
+    window.setTitle(n.getTitle());
+    if (n.icon != SWT.NONE) {
+      window.setImage(display.getSystemImage(n.icon));
+    }
+    window.setAnchor(SWT.NONE);
+    window.setAutoAnchor(false);
+    final Label label = new Label(window.getContents(), SWT.WRAP);
+    label.setBackground(window.getBackground());
+    label.setForeground(window.getForeground());
+    label.setText(n.message);
+    Point size = label.computeSize(SWT.DEFAULT, SWT.DEFAULT);
+    if (size.x > MESSAGE_MAX_WIDTH) {
+      size = label.computeSize(MESSAGE_MAX_WIDTH, SWT.DEFAULT);
+    }
+    label.setSize(size);
+    window.addSelectionControl(label);
+    return window;
+  }
+
+  /**
+   * Stacks the visible balloons upward from the bottom right corner of the
+   * monitor of the parent shell, the oldest one at the bottom.
+   */
+  private void restack() {
+    final Rectangle area = parent.getMonitor().getClientArea();
+    int bottom = (area.y + area.height) - SCREEN_MARGIN;
+    for (final Notification n : visible) {
+      final Point size = n.window.pack();
+      final int x = (area.x + area.width) - SCREEN_MARGIN - size.x;
+      final int y = bottom - size.y;
+      n.window.getShell().setLocation(x, y);
+      bottom = y - STACK_SPACING;
+    }
+  }
+
+  private void scheduleExpiry() {
+    long next = Long.MAX_VALUE;
+    for (final Notification n : visible) {
+      next = Math.min(next, n.expiry);
+    }
+    if (next == Long.MAX_VALUE) {
+      display.timerExec(- 1, expirer);
+    } else {
+      final long delay = Math.max(0, next - System.currentTimeMillis());
+      display.timerExec((int) delay, expirer);
+    }
+  }
+
+  private void expire() {
+    if (disposed) {
+      return;
+    }
+    final long now = System.currentTimeMillis();
+    final ArrayList<Notification> expired = new ArrayList<Notification>();
+    for (final Notification n : visible) {
+      if (n.expiry <= now) {
+        expired.add(n);
+      }
+    }
+    //  closing a balloon calls back onBalloonHidden()
+    for (final Notification n : expired) {
+      n.window.close();
+    }
+    scheduleExpiry();
+  }
+
+  private void onBalloonHidden(Shell shell) {
+    if (disposed) {
+      return;
+    }
+    final Iterator<Notification> iter = visible.iterator();
+    while (iter.hasNext()) {
+      final Notification n = iter.next();
+      if (n.window.getShell() == shell) {
+        iter.remove();
+        n.window = null;
+        LOGGER.trace("The notification is hidden: {}", n.title);
+        stackChanged = true;
+        break;
+      }
+    }
+    //  the hidden balloon is released to the pool after this event, so the
+    //  waiting notifications are shown in a following flush.
+    scheduleFlush();
+  }
+
+  /**
+   * A posted notification.
+   */
+  private static final class Notification {
+    final String title;
+    final String message;
+    final int icon;
+    int count;
+    long expiry;
+    BalloonWindow window;
+
+    Notification(String title, String message, int icon) {
+      this.title = title;
+      this.message = message;
+      this.icon = icon;
+      this.count = 1;
+    }
+
+    boolean isSameAs(Notification other) {
+      return (icon == other.icon)
+          && title.equals(other.title)
+          && message.equals(other.message);
+    }
+
+    String getTitle() {
+      return (count == 1 ? title : title + " (" + count + ")");
+    }
+  }
+}
@@ -0,0 +1,476 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Region;
+import org.eclipse.swt.widgets.Display;
+
+import com.github.haixing_hu.swt.utils.ResourceTracker;
+
+/**
+ * The outlines of the balloon windows, together with a cache of the outlines
+ * and of the regions built from them, shared by all balloon windows of a
+ * display.
+ * <p>
+ * An outline is a polygon consisting of a rounded rectangle and an optional
+ * triangle anchor. The rounded corners are rasterized as staircases of whole
+ * pixels, so that the border drawn along the inner outline exactly fits the
+ * region built from the outer outline, for any corner radius.
+ * <p>
+ * The cached outlines and regions are keyed by the width, the height and the
+ * anchor of the balloon window, and whether the outline is the outer one. A
+ * cached region is shared by all shells of the same shape; it is disposed
+ * when it is evicted while no shell uses it, or when the display is disposed.
+ * The instances of this class must be accessed in the UI thread of its
+ * display.
+ *
+ * @author Haixing Hu
+ */
+final class BalloonOutline {
+
+  /**
+   * The default radius of the rounded corners of a balloon window.
+   */
+  static final int CORNER_RADIUS = 5;
+
+  /**
+   * The distance between a corner anchor and the rounded corner next to it.
+   */
+  static final int ANCHOR_CORNER_OFFSET = 10;
+
+  /**
+   * The size of the anchor of a balloon window.
+   */
+  static final int ANCHOR_SIZE = 20;
+
+  /**
+   * The offset of the outer outline relative to the inner outline.
+   */
+  static final int OUTER_OFFSET = 2;
+
+  /**
+   * The maximum number of the outlines, and of the unused regions, in a cache.
+   */
+  static final int MAX_ENTRIES = 64;
+
+  private static final String DATA_KEY = BalloonOutline.class.getName();
+
+  /**
+   * Gets the outline cache of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the outline cache of the specified display.
+   */
+  static BalloonOutline getInstance(final Display display) {
+    BalloonOutline cache = (BalloonOutline) display.getData(DATA_KEY);
+    if (cache == null) {
+      cache = new BalloonOutline();
+      display.setData(DATA_KEY, cache);
+      final BalloonOutline theCache = cache;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theCache.dispose();
+        }
+      });
+    }
+    return cache;
+  }
+
+  private final Map<Key, int[]> outlines;
+  private final LinkedHashMap<Key, SharedRegion> regions;
+  private final Map<Region, SharedRegion> owners;
+
+  private BalloonOutline() {
+    outlines = new LinkedHashMap<Key, int[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+        return size() > MAX_ENTRIES;
+      }
+    };
+    regions = new LinkedHashMap<Key, SharedRegion>(16, 0.75f, true);
+    owners = new IdentityHashMap<Region, SharedRegion>();
+  }
+
+  /**
+   * Gets the outline of a balloon window with the default corner radius.
+   *
+   * @param width
+   *          the width of the balloon window.
+   * @param height
+   *          the height of the balloon window.
+   * @param anchor
+   *          the anchor position of the balloon window.
+   * @param outer
+   *          indicates whether the outline is the outer outline or the inner
+   *          outline.
+   * @return an array of alternating x and y values which are the vertices of
+   *         the polygon. The returned array is shared and <b>MUST NOT</b> be
+   *         modified by the caller.
+   */
+  int[] getOutline(int width, int height, int anchor, boolean outer) {
+    final Key key = new Key(width, height, anchor, outer);
+    int[] outline = outlines.get(key);
+    if (outline == null) {
+      outline = createOutline(width, height, anchor, outer, CORNER_RADIUS);
+      outlines.put(key, outline);
+    }
+    return outline;
+  }
+
+  /**
+   * Acquires the region of the shape of a balloon window, built from its outer
+   * outline.
+   * <p>
+   * The returned region is shared by all the balloon windows of the same
+   * shape, and <b>MUST NOT</b> be modified or disposed by the caller. It
+   * should be released by calling {@link #releaseRegion(Region)} when it is no
+   * longer used.
+   *
+   * @param width
+   *          the width of the balloon window.
+   * @param height
+   *          the height of the balloon window.
+   * @param anchor
+   *          the anchor position of the balloon window.
+   * @return the region of the shape of the balloon window.
+   */
+  Region acquireRegion(int width, int height, int anchor) {
+    final Key key = new Key(width, height, anchor, true);
+    SharedRegion shared = regions.get(key);
+    if (shared == null) {
+      final Region region = ResourceTracker.trackCached(new Region());
+      region.add(getOutline(width, height, anchor, true));
+      shared = new SharedRegion(region);
+      regions.put(key, shared);
+      owners.put(region, shared);
+      evictUnusedRegions();
+    }
+    ++shared.references;
+    return shared.region;
+  }
+
+  /**
+   * Releases a region acquired by {@link #acquireRegion(int, int, int)}.
+   *
+   * @param region
+   *          the region to be released.
+   */
+  void releaseRegion(Region region) {
+    final SharedRegion shared = owners.get(region);
+    if ((shared != null) && (shared.references > 0)) {
+      --shared.references;
+    }
+  }
+
+  /**
+   * Discards all the cached outlines and disposes all the cached regions.
+   */
+  void dispose() {
+    outlines.clear();
+    for (final SharedRegion shared : regions.values()) {
+      shared.region.dispose();
+    }
+    regions.clear();
+    owners.clear();
+  }
+
+  private void evictUnusedRegions() {
+    final Iterator<SharedRegion> iter = regions.values().iterator();
+    while ((regions.size() > MAX_ENTRIES) && iter.hasNext()) {
+      final SharedRegion shared = iter.next();
+      if (shared.references == 0) {
+        iter.remove();
+        owners.remove(shared.region);
+        shared.region.dispose();
+      }
+    }
+  }
+
+  /**
+   * Creates the outline of the polygon shape of a balloon window.
+   * <p>
+   * The outline of a window anchored at the bottom is the vertical mirror of
+   * the outline of the window anchored at the top, and the outline of a
+   * window anchored at the left or right side is the transpose of the outline
+   * of the window anchored at the top or bottom. The outer offset only widens
+   * the anchors of the outer outline, except the centered bottom anchor.
+   *
+   * @param width
+   *          the width of the balloon window.
+   * @param height
+   *          the height of the balloon window.
+   * @param anchor
+   *          the anchor position of the balloon window.
+   * @param outer
+   *          indicates whether this outline is the outer outline or the inner
+   *          outline.
+   * @param radius
+   *          the radius of the rounded corners. It must not be greater than
+   *          the half of the width or the height of the body of the window.
+   * @return an array of alternating x and y values which are the vertices of
+   *         the polygon.
+   */
+  static int[] createOutline(int width, int height, int anchor, boolean outer,
+      int radius) {
+    if (radius < 0) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    final int o = (outer ? OUTER_OFFSET : 0);
+    final int w = width + o;
+    final int h = height + o;
+    switch (anchor) {
+    case SWT.NONE:
+      return createTopOutline(w, h, SWT.NONE, o, radius);
+    case SWT.LEFT | SWT.TOP:
+      return createTopOutline(w, h, SWT.LEFT, o, radius);
+    case SWT.TOP:
+      return createTopOutline(w, h, SWT.CENTER, o, radius);
+    case SWT.RIGHT | SWT.TOP:
+      return createTopOutline(w, h, SWT.RIGHT, o, radius);
+    case SWT.LEFT | SWT.BOTTOM:
+      return flip(createTopOutline(w, h, SWT.LEFT, o, radius), h);
+    case SWT.BOTTOM:
+      //  the outer offset is not applied to the centered bottom anchor, whose
+      //  tip is a single pixel, as in the original hand-written outline
+      return flip(createTopOutline(w, h, SWT.CENTER, 0, radius), h);
+    case SWT.RIGHT | SWT.BOTTOM:
+      return flip(createTopOutline(w, h, SWT.RIGHT, o, radius), h);
+    case SWT.LEFT:
+      return transpose(createTopOutline(h, w, SWT.CENTER, o, radius));
+    case SWT.RIGHT:
+      return transpose(flip(createTopOutline(h, w, SWT.CENTER, o, radius), w));
+    default:
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+      return null;
+    }
+  }
+
+  /**
+   * Creates the outline of a balloon window whose anchor is on its top side.
+   *
+   * @param w
+   *          the width of the outline.
+   * @param h
+   *          the height of the outline.
+   * @param position
+   *          the position of the anchor on the top side, which is one of
+   *          <code>SWT.LEFT</code>, <code>SWT.CENTER</code> and
+   *          <code>SWT.RIGHT</code>; or <code>SWT.NONE</code> if there is no
+   *          anchor.
+   * @param o
+   *          the offset of the outer outline, or 0 for the inner outline.
+   * @param r
+   *          the radius of the rounded corners.
+   * @return an array of alternating x and y values which are the vertices of
+   *         the polygon.
+   */
+  private static int[] createTopOutline(int w, int h, int position, int o,
+      int r) {
+    final int s = ANCHOR_SIZE;
+    final int top = (position == SWT.NONE ? 0 : s);
+    final int right = w - 1;
+    final int bottom = h - 1;
+    final int[] corner = createCorner(right, top, r);
+    final int cornerPoints = corner.length / 2;
+    final int anchorPoints;
+    switch (position) {
+    case SWT.LEFT:
+      anchorPoints = (2 * (s - 1)) + 3;
+      break;
+    case SWT.RIGHT:
+      anchorPoints = (2 * (s - 1)) + 4;
+      break;
+    case SWT.CENTER:
+      anchorPoints = 4;
+      break;
+    default:
+      anchorPoints = 0;
+      break;
+    }
+    final int[] result = new int[2 * (anchorPoints + (4 * cornerPoints))];
+    int n = 0;
+    //  the anchor on the top side
+    final int a = r + ANCHOR_CORNER_OFFSET;
+    switch (position) {
+    case SWT.LEFT:
+      n = put(result, n, a, top);
+      n = put(result, n, a, 0);
+      n = put(result, n, a + o, 0);
+      for (int k = 1; k < s; ++k) {
+        n = put(result, n, a + o + k, k);
+        n = put(result, n, a + o + k, k + 1);
+      }
+      break;
+    case SWT.CENTER:
+      n = put(result, n, (w / 2) - (s / 2) - o, top);
+      n = put(result, n, (w / 2) - o, 0);
+      n = put(result, n, w / 2, 0);
+      n = put(result, n, (w / 2) + (s / 2), top);
+      break;
+    case SWT.RIGHT:
+      for (int k = s - 1; k > 0; --k) {
+        n = put(result, n, right - a - o - k, k + 1);
+        n = put(result, n, right - a - o - k, k);
+      }
+      n = put(result, n, right - a - o, 1);
+      n = put(result, n, right - a - o, 0);
+      n = put(result, n, right - a, 0);
+      n = put(result, n, right - a, top);
+      break;
+    default:
+      break;
+    }
+    //  the top right corner
+    for (int i = 0; i < cornerPoints; ++i) {
+      n = put(result, n, corner[2 * i], corner[(2 * i) + 1]);
+    }
+    //  the bottom right corner
+    for (int i = cornerPoints - 1; i >= 0; --i) {
+      n = put(result, n, corner[2 * i], (top + bottom) - corner[(2 * i) + 1]);
+    }
+    //  the bottom left corner
+    for (int i = 0; i < cornerPoints; ++i) {
+      n = put(result, n, right - corner[2 * i],
+          (top + bottom) - corner[(2 * i) + 1]);
+    }
+    //  the top left corner
+    for (int i = cornerPoints - 1; i >= 0; --i) {
+      n = put(result, n, right - corner[2 * i], corner[(2 * i) + 1]);
+    }
+    return result;
+  }
+
+  /**
+   * Creates the vertices of the top right rounded corner, from the top side to
+   * the right side.
+   * <p>
+   * The row <code>dy</code> of the corner is inset by the horizontal distance
+   * between the right side and a circle of the specified radius, rounded up
+   * to whole pixels; only the vertices where the inset changes are created.
+   *
+   * @param right
+   *          the x coordinate of the right side.
+   * @param top
+   *          the y coordinate of the top side.
+   * @param r
+   *          the radius of the corner.
+   * @return an array of alternating x and y values which are the vertices of
+   *         the corner.
+   */
+  private static int[] createCorner(int right, int top, int r) {
+    final int[] insets = new int[r];
+    int count = 1;
+    for (int dy = 0; dy < r; ++dy) {
+      final double y = (r - dy) + 0.5;
+      final double x = Math.sqrt(Math.max(0, (r * r) - (y * y)));
+      insets[dy] = Math.min(r, (int) Math.ceil(r - x));
+      if ((dy == 0) || (insets[dy] != insets[dy - 1])) {
+        count += 2;
+      }
+    }
+    final int[] result = new int[2 * count];
+    int n = 0;
+    for (int dy = 0; dy < r; ++dy) {
+      if ((dy == 0) || (insets[dy] != insets[dy - 1])) {
+        n = put(result, n, right - insets[dy], top + dy);
+      }
+      if ((dy == (r - 1)) || (insets[dy] != insets[dy + 1])) {
+        n = put(result, n, right - insets[dy], top + dy + 1);
+      }
+    }
+    put(result, n, right, top + r);
+    return result;
+  }
+
+  private static int put(int[] array, int n, int x, int y) {
+    array[n] = x;
+    array[n + 1] = y;
+    return n + 2;
+  }
+
+  private static int[] flip(int[] outline, int h) {
+    for (int i = 1; i < outline.length; i += 2) {
+      outline[i] = h - 1 - outline[i];
+    }
+    return outline;
+  }
+
+  private static int[] transpose(int[] outline) {
+    for (int i = 0; i < outline.length; i += 2) {
+      final int x = outline[i];
+      outline[i] = outline[i + 1];
+      outline[i + 1] = x;
+    }
+    return outline;
+  }
+
+  private static final class SharedRegion {
+    final Region region;
+    int references;
+
+    SharedRegion(Region region) {
+      this.region = region;
+      this.references = 0;
+    }
+  }
+
+  private static final class Key {
+    private final int width;
+    private final int height;
+    private final int anchor;
+    private final boolean outer;
+
+    Key(int width, int height, int anchor, boolean outer) {
+      this.width = width;
+      this.height = height;
+      this.anchor = anchor;
+      this.outer = outer;
+    }
+
+    @Override
+    public int hashCode() {
+      int code = width;
+      code = (31 * code) + height;
+      code = (31 * code) + anchor;
+      code = (31 * code) + (outer ? 1 : 0);
+      return code;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (! (obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return (width == other.width)
+          && (height == other.height)
+          && (anchor == other.anchor)
+          && (outer == other.outer);
+    }
+  }
+}
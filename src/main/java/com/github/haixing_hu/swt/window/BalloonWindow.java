@@ -17,7 +17,6 @@ import java.util.ArrayList;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
-import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
@@ -80,18 +79,16 @@ public class BalloonWindow {
 
   private static final int SCREEN_MARGIN_HEIGHT = 20;
 
-  private static final int CORNER_RADIUS = 5;
+  private static final int CORNER_RADIUS = BalloonOutline.CORNER_RADIUS;
 
-  private static final int ANCHOR_CORNER_OFFSET = 10;
+  private static final int ANCHOR_CORNER_OFFSET = BalloonOutline.ANCHOR_CORNER_OFFSET;
 
-  private static final int ANCHOR_SIZE = 20;
+  private static final int ANCHOR_SIZE = BalloonOutline.ANCHOR_SIZE;
 
   private static final int ANCHOR_MIN_SPACE = ((CORNER_RADIUS + ANCHOR_CORNER_OFFSET) * 2) + ANCHOR_SIZE;
 
   private static final int BALLOON_MARGIN = 10;
 
-  private static final int OUTER_OFFSET = 2;
-
   private static final Logger LOGGER = LoggerFactory.getLogger(BalloonWindow.class);
 
   private int preferredAnchor = DEFAULT_PREFERRED_ANCHOR;
@@ -112,16 +109,23 @@ public class BalloonWindow {
   private Label titleLabel;
   private ToolBar closeButton;
   private final Composite contents;
-  private final Listener globalListener;
   private final Listener shellListener;
   private final Listener parentListener;
   private Image closeIcon = null;
+  private final BalloonWindowPool pool;
+  private int generation = 0;
+  private boolean released;
 
   private final ArrayList<Object> selectionControls = new ArrayList<Object>();
-  private boolean addedGlobalListener = false;
+  private int defaultSelectionControls;
+  private boolean registered = false;
   private final ArrayList<Listener> selectionListeners = new ArrayList<Listener>();
   private Point contentsSize;   //  internal use
   private Point titleSize;      //  internal use
+  private Region region;        //  internal use
+  private int[] border;         //  internal use
+  private int shapeAnchor = -1; //  internal use
+  private Point shapeSize;      //  internal use
 
   /**
    * Constructs a new balloon window with the default style.
@@ -149,7 +153,29 @@ public class BalloonWindow {
    *    </ul>
    */
   public BalloonWindow(final Shell parent, final int style) {
+    this(parent, style, null);
+  }
+
+  /**
+   * Constructs a new balloon window owned by a pool.
+   * <p>
+   * The title widgets of a pooled window are created eagerly, and closing the
+   * window returns it to the pool instead of disposing it. A pooled window is
+   * idle until it is acquired from the pool.
+   *
+   * @param parent
+   *    the parent shell of the new balloon window.
+   * @param style
+   *    the SWT windows style of the new balloon window.
+   * @param pool
+   *    the pool owning the new balloon window, or <code>null</code> if it is
+   *    not pooled.
+   */
+  BalloonWindow(final Shell parent, final int style,
+      final BalloonWindowPool pool) {
     this.style = style;
+    this.pool = pool;
+    this.released = (pool != null);
     if ((style & SWT.CLOSE) == 0) {
       closeOnClickInside = true;
     }
@@ -174,17 +200,7 @@ public class BalloonWindow {
       selectionControls.add(closeButton);
     }
     selectionControls.add(contents);
-
-    //  The global listener is used to dispatch the mouse down event to
-    //  all controls in the selectionControls list.
-    //  If there is no close button, any mouse down event happened on one
-    //  of the selection control will close the balloon window.
-    globalListener = new Listener() {
-      @Override
-      public void handleEvent(Event event) {
-        onMouseDown(event);
-      }
-    };
+    defaultSelectionControls = selectionControls.size();
 
     //  add the listener to the shell
     shellListener = new Listener() {
@@ -194,6 +210,12 @@ public class BalloonWindow {
         case SWT.Dispose:
           onDispose(event);
           break;
+        case SWT.Paint:
+          onPaint(event);
+          break;
+        case SWT.Close:
+          onClose(event);
+          break;
         case SWT.Show:
           onShow(event);
           break;
@@ -208,6 +230,7 @@ public class BalloonWindow {
     shell.addListener (SWT.Show, shellListener);
     shell.addListener (SWT.Hide, shellListener);
     shell.addListener (SWT.MouseDown, shellListener);
+    shell.addListener (SWT.Close, shellListener);
 
     //  dispose this balloon window if its parent is disposed.
     parentListener = new Listener() {
@@ -217,6 +240,10 @@ public class BalloonWindow {
       }
     };
     parent.addListener(SWT.Dispose, parentListener);
+
+    if (pool != null) {
+      createTitle();
+    }
   }
 
   private void onDispose(Event event) {
@@ -226,52 +253,80 @@ public class BalloonWindow {
     shell.removeListener (SWT.Dispose, shellListener);
     shell.notifyListeners (SWT.Dispose, event);
     event.type = SWT.None;
-    //  unregister the global listener
-    if (addedGlobalListener) {
-      shell.getDisplay().removeFilter(SWT.MouseDown, globalListener);
-      addedGlobalListener = false;
-    }
+    //  unregister from the mouse down dispatcher
+    unregister();
     //  dispose the resources
     if (closeIcon != null) {
       closeIcon.dispose();
       closeIcon = null;
     }
+    if (region != null) {
+      BalloonOutline.getInstance(shell.getDisplay()).releaseRegion(region);
+      region = null;
+    }
+  }
+
+  private void onPaint(Event event) {
+    LOGGER.trace("onPaint()");
+    if (border != null) {
+      event.gc.drawPolygon(border);
+    }
+  }
+
+  private void onClose(Event event) {
+    LOGGER.trace("onClose()");
+    if ((pool != null) && (! pool.isDisposed())) {
+      //  keep the shell alive and give it back to the pool
+      event.doit = false;
+      if (! released) {
+        shell.setVisible(false);
+        pool.release(this);
+      }
+    }
   }
 
   private void onShow(Event event) {
     LOGGER.trace("onShow()");
-    if (! addedGlobalListener) {
-      shell.getDisplay().addFilter(SWT.MouseDown, globalListener);
-      addedGlobalListener = true;
+    //  the mouse down events of all the visible balloon windows of the
+    //  display are dispatched by a single filter of the display.
+    if (! registered) {
+      BalloonDispatcher.getInstance(shell.getDisplay()).register(this,
+          selectionControls);
+      registered = true;
     }
   }
 
   private void onHide(Event event) {
     LOGGER.trace("onHide()");
-    if (addedGlobalListener) {
-      shell.getDisplay().removeFilter(SWT.MouseDown, globalListener);
-      addedGlobalListener = false;
-    }
+    unregister();
   }
 
-  private void onMouseDown(Event event) {
-    LOGGER.trace("onMouseDown()");
-    for (int i = selectionControls.size() - 1; i >= 0; i--) {
-      if (selectionControls.get(i) == event.widget) {
-        if (closeOnClickInside) {
-          close();
-        } else {
-          for (int j = selectionListeners.size() - 1; j >= 0; j--) {
-            selectionListeners.get(j).handleEvent(event);
-          }
-        }
-        event.doit = false;
-        return;
-      }
+  private void unregister() {
+    if (registered) {
+      BalloonDispatcher.getInstance(shell.getDisplay()).unregister(this,
+          selectionControls);
+      registered = false;
     }
-    if (closeOnClickOutside) {
+  }
+
+  /**
+   * Handles a mouse down event happened on one of the selection controls of
+   * this window. If there is no close button, any mouse down event happened on
+   * one of the selection control will close the balloon window.
+   *
+   * @param event
+   *    the mouse down event.
+   */
+  void onMouseDownInside(Event event) {
+    LOGGER.trace("onMouseDownInside()");
+    if (closeOnClickInside) {
       close();
+    } else {
+      for (int j = selectionListeners.size() - 1; j >= 0; j--) {
+        selectionListeners.get(j).handleEvent(event);
+      }
     }
+    event.doit = false;
   }
 
   /**
@@ -280,6 +335,9 @@ public class BalloonWindow {
    */
   public void addSelectionControl(Control c) {
     selectionControls.add(c);
+    if (registered) {
+      BalloonDispatcher.getInstance(shell.getDisplay()).addControl(this, c);
+    }
   }
 
   public void addListener(int type, Listener l) {
@@ -502,6 +560,10 @@ public class BalloonWindow {
    */
   public void setCloseOnClickOutside(boolean closeOnClickOutside) {
     this.closeOnClickOutside = closeOnClickOutside;
+    if (registered) {
+      BalloonDispatcher.getInstance(shell.getDisplay())
+                       .updateCloseOnClickOutside(this);
+    }
   }
 
   public Shell getShell() {
@@ -522,7 +584,22 @@ public class BalloonWindow {
     return contents;
   }
 
+  /**
+   * Shows or hides this balloon window.
+   * <p>
+   * Hiding a window obtained from a {@link BalloonWindowPool} keeps its
+   * contents, so that it could be shown again; the window is returned to its
+   * pool only when it is closed. This function does nothing if the window has
+   * been returned to its pool.
+   *
+   * @param visible
+   *    <code>true</code> to show this window; <code>false</code> to hide it.
+   */
   public void setVisible(boolean visible) {
+    if (released) {
+      LOGGER.trace("Ignore setVisible() of a released balloon window.");
+      return;
+    }
     if (visible) {
       prepareForOpen();
     }
@@ -541,13 +618,139 @@ public class BalloonWindow {
   }
 
   /**
-   * Closes and disposes this balloon window.
+   * Closes this balloon window.
+   * <p>
+   * A window obtained from a {@link BalloonWindowPool} is hidden and returned
+   * to its pool; otherwise the window is disposed. This function does nothing
+   * if the window has already been returned to its pool.
    */
   public void close() {
-    LOGGER.trace("onClose()");
+    LOGGER.trace("close()");
+    if (released) {
+      LOGGER.trace("Ignore close() of a released balloon window.");
+      return;
+    }
     shell.close();
   }
 
+  /**
+   * Closes this balloon window if it is still used by the user who acquired it
+   * at the specified generation.
+   * <p>
+   * The users of a {@link BalloonWindowPool} which close their windows later,
+   * e.g., from a timer, should keep the generation returned by
+   * {@link #getGeneration()} after acquiring the window, and close it by this
+   * function, so that a window already returned to the pool and handed to
+   * another user is not closed.
+   *
+   * @param generation
+   *    the generation of this window when it was acquired.
+   */
+  public void close(int generation) {
+    if (generation != this.generation) {
+      LOGGER.trace("Ignore close() of a re-acquired balloon window.");
+      return;
+    }
+    close();
+  }
+
+  /**
+   * Gets the generation of this balloon window.
+   * <p>
+   * The generation of a window obtained from a {@link BalloonWindowPool} is
+   * increased every time it is acquired from the pool; the generation of a
+   * window which is not pooled is always zero.
+   *
+   * @return the generation of this balloon window.
+   */
+  public int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Tests whether this balloon window is idle in its pool.
+   *
+   * @return <code>true</code> if this window has been returned to its pool and
+   *    not acquired again; <code>false</code> otherwise.
+   */
+  boolean isReleased() {
+    return released;
+  }
+
+  /**
+   * Marks this balloon window as acquired by a new user of its pool.
+   */
+  void acquired() {
+    released = false;
+    ++generation;
+  }
+
+  /**
+   * Marks this balloon window as returned to its pool.
+   */
+  void released() {
+    released = true;
+  }
+
+  /**
+   * Lays out this balloon window without showing it.
+   * <p>
+   * This function is used by the managers of balloon windows which need the
+   * size of the window to position it before showing it.
+   *
+   * @return the size of the shell of this balloon window.
+   */
+  Point pack() {
+    prepareForOpen();
+    return shell.getSize();
+  }
+
+  /**
+   * Tests whether this balloon window is disposed.
+   *
+   * @return <code>true</code> if the shell of this balloon window is disposed;
+   *    <code>false</code> otherwise.
+   */
+  public boolean isDisposed() {
+    return shell.isDisposed();
+  }
+
+  /**
+   * Restores the state of this window to the state just after its
+   * construction, so that it could be re-targeted by the next user of the
+   * pool owning it.
+   * <p>
+   * The children of the contents composite are disposed, and the selection
+   * controls and selection listeners added by the previous user are removed.
+   */
+  void reset() {
+    preferredAnchor = DEFAULT_PREFERRED_ANCHOR;
+    autoAnchor = DEFAULT_AUTO_ANCHOR;
+    locX = Integer.MIN_VALUE;
+    locY = Integer.MIN_VALUE;
+    marginLeft = DEFAULT_MARGIN_LEFT;
+    marginRight = DEFAULT_MARGIN_RIGHT;
+    marginTop = DEFAULT_MARGIN_TOP;
+    marginBottom = DEFAULT_MARGIN_BOTTOM;
+    titleSpacing = DEFAULT_TITLE_SPACING;
+    titleWidgetSpacing = DEFAULT_TITLE_WIDGET_SPACING;
+    closeOnClickInside = ((style & SWT.CLOSE) == 0);
+    closeOnClickOutside = false;
+    shell.setText("");
+    shell.setImage(null);
+    final Display display = shell.getDisplay();
+    setBackground(display.getSystemColor(SWT.COLOR_INFO_BACKGROUND));
+    setForeground(display.getSystemColor(SWT.COLOR_INFO_FOREGROUND));
+    for (final Control child : contents.getChildren()) {
+      child.dispose();
+    }
+    contents.setLayout(null);
+    while (selectionControls.size() > defaultSelectionControls) {
+      selectionControls.remove(selectionControls.size() - 1);
+    }
+    selectionListeners.clear();
+  }
+
   private void prepareForOpen() {
     contents.pack();
     contentsSize = contents.getSize();
@@ -570,15 +773,33 @@ public class BalloonWindow {
 
   private void createTitle() {
     final Image icon = shell.getImage();
-    if ((titleIcon == null) && (icon != null)) {
-      titleIcon = createTitleIcon(shell, icon);
+    if (icon != null) {
+      if (titleIcon == null) {
+        titleIcon = createTitleIcon(shell, icon);
+      } else {
+        final Rectangle bounds = icon.getBounds();
+        titleIcon.setBackground(shell.getBackground());
+        titleIcon.setSize(bounds.width, bounds.height);
+        titleIcon.setVisible(true);
+        titleIcon.redraw();
+      }
+    } else if (titleIcon != null) {
+      //  the title icon of a re-targeted window is kept for the next use
+      titleIcon.setVisible(false);
     }
     if (titleLabel == null) {
       titleLabel = createTitleLabel(shell, shell.getText());
     } else {
+      //  the colors of the window may be changed since the label was created
+      titleLabel.setBackground(shell.getBackground());
+      titleLabel.setForeground(shell.getForeground());
       titleLabel.setText(shell.getText());
     }
-    if ((closeButton == null) && ((style & SWT.CLOSE) != 0)) {
+    if (closeButton != null) {
+      closeButton.setBackground(shell.getBackground());
+      closeButton.setForeground(shell.getForeground());
+      updateCloseIcon(closeButton.getItem(0));
+    } else if ((style & SWT.CLOSE) != 0) {
       closeButton = createCloseButton(shell);
     }
   }
@@ -591,7 +812,11 @@ public class BalloonWindow {
     canvas.addListener(SWT.Paint, new Listener() {
       @Override
       public void handleEvent(Event event) {
-        event.gc.drawImage(icon, 0, 0);
+        //  the image of the shell may be changed when the window is re-targeted
+        final Image image = shell.getImage();
+        if (image != null) {
+          event.gc.drawImage(image, 0, 0);
+        }
       }
     });
     return canvas;
@@ -615,13 +840,14 @@ public class BalloonWindow {
     toolbar.setBackground(parent.getBackground());
     toolbar.setForeground(parent.getForeground());
     final ToolItem item = new ToolItem(toolbar, SWT.PUSH);
-    final Image icon = createCloseImage(parent.getDisplay(),
-          parent.getBackground(), parent.getForeground());
-    item.setImage(icon);
+    //  the rendered close icons are shared by all balloon windows
+    final CloseIconCache icons = CloseIconCache.getInstance(parent.getDisplay());
+    item.setImage(icons.acquire(parent.getBackground(), parent.getForeground()));
     item.addListener(SWT.Dispose, new Listener() {
       @Override
       public void handleEvent(Event event) {
-        icon.dispose();
+        //  the icon may be replaced when the colors of the window change
+        icons.release(item.getImage());
       }
     });
     item.addListener(SWT.Selection, new Listener() {
@@ -633,11 +859,24 @@ public class BalloonWindow {
     return toolbar;
   }
 
+  private void updateCloseIcon(ToolItem item) {
+    final CloseIconCache icons = CloseIconCache.getInstance(shell.getDisplay());
+    final Image oldIcon = item.getImage();
+    final Image newIcon = icons.acquire(shell.getBackground(),
+        shell.getForeground());
+    if (newIcon != oldIcon) {
+      item.setImage(newIcon);
+    }
+    //  release one reference of the old icon, which is the same as the new
+    //  icon if the colors are not changed
+    icons.release(oldIcon);
+  }
+
   private void calculateTitleSize() {
     if ((style & SWT.TITLE) != 0) {
       titleLabel.pack();
       titleSize = titleLabel.getSize();
-      if (titleIcon != null) {
+      if (hasTitleIcon()) {
         final Point iconSize = titleIcon.getSize();
         titleSize.x += iconSize.x + titleWidgetSpacing;
         titleSize.y = Math.max(titleSize.y, iconSize.y);
@@ -654,6 +893,10 @@ public class BalloonWindow {
     }
   }
 
+  private boolean hasTitleIcon() {
+    return (titleIcon != null) && titleIcon.getVisible();
+  }
+
   private int calculateAnchor() {
     int anchor = preferredAnchor;
     if ((anchor != SWT.NONE) && autoAnchor && (locX != Integer.MIN_VALUE)) {
@@ -721,7 +964,7 @@ public class BalloonWindow {
     final int offsetRight = marginRight + ((anchor == SWT.RIGHT) ? ANCHOR_SIZE : 0);
     if ((style & SWT.TITLE) != 0) {
       final int realTitleHeight = titleSize.y - titleSpacing;
-      if (titleIcon != null) {
+      if (hasTitleIcon()) {
         final Point iconSize = titleIcon.getSize();
         titleIcon.setLocation(offsetLeft,
             offsetTop + ((realTitleHeight - iconSize.y) / 2));
@@ -749,26 +992,24 @@ public class BalloonWindow {
   }
 
   private void setShellShape(int anchor, Point shellSize) {
-    //  set the shape of the shell
-    final int[] shape = createOutline(shellSize, anchor, true);
-    final Region region = new Region();
-    region.add(shape);
-    shell.setRegion(region);
-    shell.addListener(SWT.Dispose, new Listener() {
-      @Override
-      public void handleEvent(Event event) {
-        region.dispose();
-      }
-    });
-    //  draw the border of the shell
-    final int[] border = createOutline(shellSize, anchor, false);
-    shell.addListener(SWT.Paint, new Listener() {
-      @Override
-      public void handleEvent(Event event) {
-        LOGGER.trace("onPaint()");
-        event.gc.drawPolygon(border);
-      }
-    });
+    if ((anchor == shapeAnchor) && shellSize.equals(shapeSize)) {
+      LOGGER.trace("Reuse the shape of the shell.");
+      return;
+    }
+    //  set the shape of the shell; the previous region is replaced, and the
+    //  border is painted by the shell listener. The outlines and the regions
+    //  are shared by the balloon windows of the same shape.
+    final BalloonOutline outlines = BalloonOutline.getInstance(shell.getDisplay());
+    final Region newRegion = outlines.acquireRegion(shellSize.x, shellSize.y, anchor);
+    shell.setRegion(newRegion);
+    if (region != null) {
+      outlines.releaseRegion(region);
+    }
+    region = newRegion;
+    border = outlines.getOutline(shellSize.x, shellSize.y, anchor, false);
+    shapeAnchor = anchor;
+    shapeSize = shellSize;
+    shell.redraw();
   }
 
   private void setShellLocation(int anchor, Point shellSize) {
@@ -779,20 +1020,20 @@ public class BalloonWindow {
     final Point shellLoc = new Point(locX, locY);
     switch (anchor) {
     case SWT.LEFT | SWT.TOP:
-      shellLoc.x -= (CORNER_RADIUS | ANCHOR_CORNER_OFFSET);
+      shellLoc.x -= (CORNER_RADIUS + ANCHOR_CORNER_OFFSET);
       break;
     case SWT.TOP:
       shellLoc.x -= shellSize.x / 2;
       break;
     case SWT.RIGHT | SWT.TOP:
-      shellLoc.x = (shellLoc.x - shellSize.x) + (CORNER_RADIUS | ANCHOR_CORNER_OFFSET);
+      shellLoc.x = (shellLoc.x - shellSize.x) + (CORNER_RADIUS + ANCHOR_CORNER_OFFSET);
       break;
     case SWT.RIGHT:
       shellLoc.x -= shellSize.x;
       shellLoc.y -= shellSize.y / 2;
       break;
     case SWT.RIGHT | SWT.BOTTOM:
-      shellLoc.x = (shellLoc.x - shellSize.x) + (CORNER_RADIUS | ANCHOR_CORNER_OFFSET);
+      shellLoc.x = (shellLoc.x - shellSize.x) + (CORNER_RADIUS + ANCHOR_CORNER_OFFSET);
       shellLoc.y = (shellLoc.y - shellSize.y);
       break;
     case SWT.BOTTOM:
@@ -800,7 +1041,7 @@ public class BalloonWindow {
       shellLoc.y = (shellLoc.y - shellSize.y);
       break;
     case SWT.LEFT | SWT.BOTTOM:
-      shellLoc.x -= (CORNER_RADIUS | ANCHOR_CORNER_OFFSET);
+      shellLoc.x -= (CORNER_RADIUS + ANCHOR_CORNER_OFFSET);
       shellLoc.y = (shellLoc.y - shellSize.y);
       break;
     case SWT.LEFT:
@@ -826,276 +1067,4 @@ public class BalloonWindow {
     }
     shell.setLocation(shellLoc);
   }
-
-  /**
-   * Creates the outline of the polygon shape of the balloon window.
-   *
-   * @param size
-   *    The size of the balloon window.
-   * @param anchor
-   *    The anchor position of the balloon window.
-   * @param outer
-   *    Indicates whether this outline is the outer outline or the inner outline.
-   * @return
-   *    an array of alternating x and y values which are the vertices of the
-   *    polygon.
-   */
-  private static int[] createOutline(Point size, int anchor, boolean outer) {
-    LOGGER.trace("createOutline: {}, {}, {}", size, anchor, outer);
-    final int o = outer ? OUTER_OFFSET : 0;
-    final int w = size.x + o;
-    final int h = size.y + o;
-    switch (anchor) {
-    case SWT.RIGHT | SWT.BOTTOM:
-      return new int[] {
-          // top and top right
-          5, 0, w - 6, 0, w - 6, 1,
-          w - 4,
-          1,
-          w - 4,
-          2,
-          w - 3,
-          2,
-          w - 3,
-          3,
-          w - 2,
-          3,
-          w - 2,
-          5,
-          w - 1,
-          5,
-          // right and bottom right
-          w - 1, h - 26, w - 2, h - 26, w - 2,
-          h - 24,
-          w - 3,
-          h - 24,
-          w - 3,
-          h - 23,
-          w - 4,
-          h - 23,
-          w - 4,
-          h - 22,
-          w - 6,
-          h - 22,
-          w - 6,
-          h - 21,
-          // bottom with anchor
-          w - 16, h - 21, w - 16, h - 1, w - 16 - o, h - 1, w - 16 - o, h - 2,
-          w - 17 - o, h - 2, w - 17 - o, h - 3, w - 18 - o, h - 3, w - 18 - o,
-          h - 4, w - 19 - o, h - 4, w - 19 - o, h - 5, w - 20 - o, h - 5,
-          w - 20 - o, h - 6, w - 21 - o, h - 6, w - 21 - o, h - 7, w - 22 - o,
-          h - 7, w - 22 - o, h - 8, w - 23 - o, h - 8, w - 23 - o, h - 9,
-          w - 24 - o, h - 9, w - 24 - o, h - 10, w - 25 - o, h - 10,
-          w - 25 - o, h - 11, w - 26 - o, h - 11, w - 26 - o, h - 12,
-          w - 27 - o, h - 12, w - 27 - o, h - 13, w - 28 - o, h - 13,
-          w - 28 - o, h - 14, w - 29 - o, h - 14, w - 29 - o, h - 15,
-          w - 30 - o, h - 15, w - 30 - o, h - 16, w - 31 - o, h - 16,
-          w - 31 - o, h - 17, w - 32 - o, h - 17, w - 32 - o, h - 18,
-          w - 33 - o, h - 18, w - 33 - o, h - 19, w - 34 - o, h - 19,
-          w - 34 - o, h - 20, w - 35 - o, h - 20, w - 35 - o, h - 21,
-          // bottom left
-          5, h - 21, 5, h - 22, 3, h - 22, 3, h - 23, 2, h - 23, 2, h - 24, 1,
-          h - 24, 1, h - 26, 0, h - 26,
-          // left and top left
-          0, 5, 1, 5, 1, 3, 2, 3, 2, 2, 3, 2, 3, 1, 5, 1 };
-    case SWT.LEFT | SWT.BOTTOM:
-      return new int[] {
-          // top and top right
-          5, 0, w - 6, 0, w - 6, 1, w - 4, 1, w - 4,
-          2,
-          w - 3,
-          2,
-          w - 3,
-          3,
-          w - 2,
-          3,
-          w - 2,
-          5,
-          w - 1,
-          5,
-          // right and bottom right
-          w - 1, h - 26, w - 2, h - 26, w - 2, h - 24, w - 3, h - 24,
-          w - 3,
-          h - 23,
-          w - 4,
-          h - 23,
-          w - 4,
-          h - 22,
-          w - 6,
-          h - 22,
-          w - 6,
-          h - 21,
-          // bottom with anchor
-          34 + o, h - 21, 34 + o, h - 20, 33 + o, h - 20, 33 + o, h - 19,
-          32 + o, h - 19, 32 + o, h - 18, 31 + o, h - 18, 31 + o, h - 17,
-          30 + o, h - 17, 30 + o, h - 16, 29 + o, h - 16, 29 + o, h - 15,
-          28 + o, h - 15, 28 + o, h - 14, 27 + o, h - 14, 27 + o, h - 13,
-          26 + o, h - 13, 26 + o, h - 12, 25 + o, h - 12, 25 + o, h - 11,
-          24 + o, h - 11, 24 + o, h - 10, 23 + o, h - 10, 23 + o, h - 9,
-          22 + o, h - 9, 22 + o, h - 8, 21 + o, h - 8, 21 + o, h - 7, 20 + o,
-          h - 7, 20 + o, h - 6, 19 + o, h - 6, 19 + o, h - 5, 18 + o, h - 5,
-          18 + o, h - 4, 17 + o, h - 4, 17 + o, h - 3, 16 + o, h - 3, 16 + o,
-          h - 2, 15 + o, h - 2, 15, h - 1, 15, h - 21,
-          // bottom left
-          5, h - 21, 5, h - 22, 3, h - 22, 3, h - 23, 2, h - 23, 2, h - 24, 1,
-          h - 24, 1, h - 26, 0, h - 26,
-          // left and top left
-          0, 5, 1, 5, 1, 3, 2, 3, 2, 2, 3, 2, 3, 1, 5, 1 };
-    case SWT.RIGHT | SWT.TOP:
-      return new int[] {
-          // top with anchor
-          5, 20, w - 35 - o, 20, w - 35 - o, 19, w - 34 - o, 19, w - 34 - o,
-          18, w - 33 - o, 18, w - 33 - o, 17, w - 32 - o, 17, w - 32 - o, 16,
-          w - 31 - o, 16, w - 31 - o, 15, w - 30 - o, 15, w - 30 - o, 14,
-          w - 29 - o, 14, w - 29 - o, 13, w - 28 - o, 13, w - 28 - o, 12,
-          w - 27 - o, 12, w - 27 - o, 11, w - 26 - o, 11, w - 26 - o, 10,
-          w - 25 - o, 10, w - 25 - o, 9, w - 24 - o, 9, w - 24 - o, 8,
-          w - 23 - o, 8, w - 23 - o, 7, w - 22 - o, 7, w - 22 - o, 6,
-          w - 21 - o, 6, w - 21 - o, 5, w - 20 - o, 5, w - 20 - o, 4,
-          w - 19 - o, 4, w - 19 - o, 3, w - 18 - o, 3, w - 18 - o, 2,
-          w - 17 - o, 2, w - 17 - o, 1, w - 16 - o, 1, w - 16 - o, 0, w - 16, 0,
-          w - 16, 20,
-          // top and top right
-          w - 6, 20, w - 6, 21, w - 4, 21, w - 4, 22, w - 3, 22, w - 3, 23,
-          w - 2, 23, w - 2, 25, w - 1, 25,
-          // right and bottom right
-          w - 1, h - 6, w - 2, h - 6, w - 2, h - 4, w - 3, h - 4, w - 3, h - 3,
-          w - 4, h - 3, w - 4, h - 2, w - 6, h - 2, w - 6, h - 1,
-          // bottom and bottom left
-          5, h - 1, 5, h - 2, 3, h - 2, 3, h - 3, 2, h - 3, 2, h - 4, 1, h - 4,
-          1, h - 6, 0, h - 6,
-          // left and top left
-          0, 25, 1, 25, 1, 23, 2, 23, 2, 22, 3, 22, 3, 21, 5, 21 };
-    case SWT.LEFT | SWT.TOP:
-      return new int[] {
-          // top with anchor
-          5, 20, 15, 20, 15, 0, 15 + o, 0, 16 + o, 1, 16 + o, 2, 17 + o, 2,
-          17 + o, 3, 18 + o, 3, 18 + o, 4, 19 + o, 4, 19 + o, 5, 20 + o, 5,
-          20 + o, 6, 21 + o, 6, 21 + o, 7, 22 + o, 7, 22 + o, 8, 23 + o, 8,
-          23 + o, 9, 24 + o, 9, 24 + o, 10, 25 + o, 10, 25 + o, 11, 26 + o, 11,
-          26 + o, 12, 27 + o, 12, 27 + o, 13, 28 + o, 13, 28 + o, 14, 29 + o,
-          14, 29 + o, 15, 30 + o, 15, 30 + o, 16, 31 + o, 16, 31 + o, 17,
-          32 + o, 17, 32 + o, 18, 33 + o, 18, 33 + o, 19, 34 + o, 19, 34 + o, 20,
-          // top and top right
-          w - 6, 20, w - 6, 21, w - 4, 21, w - 4, 22, w - 3, 22, w - 3, 23,
-          w - 2, 23, w - 2, 25, w - 1, 25,
-          // right and bottom right
-          w - 1, h - 6, w - 2, h - 6, w - 2, h - 4, w - 3, h - 4, w - 3, h - 3,
-          w - 4, h - 3, w - 4, h - 2, w - 6, h - 2, w - 6, h - 1,
-          // bottom and bottom left
-          5, h - 1, 5, h - 2, 3, h - 2, 3, h - 3, 2, h - 3, 2, h - 4, 1, h - 4,
-          1, h - 6, 0, h - 6,
-          // left and top left
-          0, 25, 1, 25, 1, 23, 2, 23, 2, 22, 3, 22, 3, 21, 5, 21 };
-    case SWT.TOP:
-      return new int[] {
-          // top and anchor
-          5, 20, (w / 2) - 10 - o, 20, (w / 2) - o, 0, (w / 2), 0, (w / 2) + 10, 20,
-          //  top right
-          w - 6, 20, w - 6, 21, w - 4, 21, w - 4, 22, w - 3, 22,  w - 3, 23,
-          w - 2, 23, w - 2, 25, w - 1, 25,
-          // right and bottom right
-          w - 1, h - 6, w - 2, h - 6, w - 2, h - 4, w - 3, h - 4, w - 3, h - 3,
-          w - 4, h - 3, w - 4, h - 2, w - 6, h - 2, w - 6, h - 1,
-          // bottom and bottom left
-          5, h - 1, 5, h - 2, 3, h - 2, 3, h - 3, 2, h - 3, 2, h - 4, 1, h - 4,
-          1, h - 6, 0, h - 6,
-          // left and top left
-          0, 25, 1, 25, 1, 23, 2, 23, 2, 22, 3, 22, 3, 21, 5, 21};
-    case SWT.BOTTOM:
-      return new int[] {
-          // top and top right
-          5, 0, w - 6, 0, w - 6, 1, w - 4, 1, w - 4, 2, w - 3, 2, w - 3, 3,
-          w - 2, 3, w - 2, 5, w - 1, 5,
-          // right and bottom right
-          w - 1, h - 26, w - 2, h - 26, w - 2, h - 24, w - 3, h - 24,
-          w - 3, h - 23, w - 4, h - 23, w - 4, h - 22, w - 6, h - 22,
-          w - 6, h - 21,
-          // bottom and anchor
-          (w / 2) + 10, h - 21, (w / 2), h - 1, (w / 2) - 10, h - 21,
-          // bottom left
-          5, h - 21, 5, h - 22, 3, h - 22, 3, h - 23, 2, h - 23, 2, h - 24,
-          1, h - 24, 1, h - 26, 0, h - 26,
-          // left and top left
-          0, 5, 1, 5, 1, 3, 2, 3, 2, 2, 3, 2, 3, 1, 5, 1 };
-    case SWT.LEFT:
-      return new int[] {
-          // top and top right
-          25, 0, w - 6, 0, w - 6, 1, w - 4, 1, w - 4, 2, w - 3, 2, w - 3, 3,
-          w - 2, 3, w - 2, 5, w - 1, 5,
-          // right and bottom right
-          w - 1, h - 6, w - 2, h - 6, w - 2, h - 4, w - 3, h - 4, w - 3, h - 3,
-          w - 4, h - 3, w - 4, h - 2, w - 6, h - 2, w - 6, h - 1,
-          // bottom and bottom left
-          25, h - 1, 25, h - 2, 23, h - 2, 23, h - 3, 22, h - 3, 22, h - 4, 21, h - 4,
-          21, h - 6, 20, h - 6,
-          // left and anchor
-          20, (h / 2) + 10, 0, h / 2, 0, (h / 2) - o, 20, (h / 2) - 10 - o,
-          // top left
-          20, 5, 21, 5, 21, 3, 22, 3, 22, 2, 23, 2, 23, 1, 25, 1 };
-    case SWT.RIGHT:
-      return new int[] {
-          // top and top right
-          5, 0, w - 26, 0, w - 26, 1, w - 24, 1, w - 24, 2, w - 23, 2, w - 23, 3,
-          w - 22, 3, w - 22, 5, w - 21, 5,
-          //  right and anchor
-          w - 21, (h / 2) - 10 - o, w - 1, (h / 2) - o, w - 1, h / 2,  w - 21, (h / 2) + 10,
-          // bottom right
-          w - 21, h - 6, w - 22, h - 6, w - 22, h - 4, w - 23, h - 4, w - 23, h - 3,
-          w - 24, h - 3, w - 24, h - 2, w - 26, h - 2, w - 26, h - 1,
-          // bottom and bottom left
-          5, h - 1, 5, h - 2, 3, h - 2, 3, h - 3, 2, h - 3, 2, h - 4, 1, h - 4,
-          1, h - 6, 0, h - 6,
-          // left and top left
-          0, 5, 1, 5, 1, 3, 2, 3, 2, 2, 3, 2, 3, 1, 5, 1 };
-    default:
-      return new int[] {
-          // top and top right
-          5, 0, w - 6, 0, w - 6, 1, w - 4, 1, w - 4, 2, w - 3, 2, w - 3, 3,
-          w - 2, 3, w - 2, 5, w - 1, 5,
-          // right and bottom right
-          w - 1, h - 6, w - 2, h - 6, w - 2, h - 4, w - 3, h - 4, w - 3, h - 3,
-          w - 4, h - 3, w - 4, h - 2, w - 6, h - 2, w - 6, h - 1,
-          // bottom and bottom left
-          5, h - 1, 5, h - 2, 3, h - 2, 3, h - 3, 2, h - 3, 2, h - 4, 1, h - 4,
-          1, h - 6, 0, h - 6,
-          // left and top left
-          0, 5, 1, 5, 1, 3, 2, 3, 2, 2, 3, 2, 3, 1, 5, 1 };
-    }
-  }
-
-  /**
-   * Creates the image of the closing button on the title bar of the balloon
-   * window.
-   *
-   * @param display
-   *    a specified display.
-   * @param bg
-   *    the background color.
-   * @param fg
-   *    the foreground color.
-   * @return
-   *    the image of the closing button on the title bar of the balloon window.
-   */
-  private static final Image createCloseImage(Display display, Color bg,
-      Color fg) {
-    final int size = 11, off = 1;
-    final Image image = new Image(display, size, size);
-    final GC gc = new GC(image);
-    gc.setBackground(bg);
-    gc.fillRectangle(image.getBounds());
-    gc.setForeground(fg);
-    gc.drawLine(0 + off, 0 + off, size - 1 - off, size - 1 - off);
-    gc.drawLine(1 + off, 0 + off, size - 1 - off, size - 2 - off);
-    gc.drawLine(0 + off, 1 + off, size - 2 - off, size - 1 - off);
-    gc.drawLine(size - 1 - off, 0 + off, 0 + off, size - 1 - off);
-    gc.drawLine(size - 1 - off, 1 + off, 1 + off, size - 1 - off);
-    gc.drawLine(size - 2 - off, 0 + off, 0 + off, size - 2 - off);
-    /*
-     * gc.drawLine(1, 0, size-2, 0); gc.drawLine(1, size-1, size-2, size-1);
-     * gc.drawLine(0, 1, 0, size-2); gc.drawLine(size-1, 1, size-1, size-2);
-     */
-    gc.dispose();
-    return image;
-  }
 }
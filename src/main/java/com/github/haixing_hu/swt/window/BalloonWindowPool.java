@@ -0,0 +1,262 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import java.util.ArrayList;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of pre-built {@link BalloonWindow}s sharing the same parent shell and
+ * the same style.
+ * <p>
+ * Creating a balloon window creates a shell together with its title widgets,
+ * which is too expensive for balloons shown at a high frequency, e.g., the
+ * hints of input validations. A window acquired from this pool could be
+ * re-targeted by setting its contents, title and anchor before opening it;
+ * closing it returns the window to the pool instead of disposing it, while
+ * hiding it keeps its contents for the current user.
+ * <p>
+ * A window returned to the pool ignores the further calls of
+ * {@link BalloonWindow#close()} and {@link BalloonWindow#setVisible(boolean)}
+ * from the references kept by its previous user. Since a window may be handed
+ * to another user afterwards, a user closing its window later should use
+ * {@link BalloonWindow#close(int)} with the generation of the window when it
+ * was acquired.
+ * <p>
+ * The listeners of a pooled window are registered only once when it is
+ * created, and its shape is recomputed only when its size or anchor changes.
+ * <p>
+ * All windows of the pool are disposed when the parent shell is disposed or
+ * when the pool is disposed.
+ *
+ * @author Haixing Hu
+ */
+public class BalloonWindowPool {
+
+  public static final int DEFAULT_CAPACITY = 4;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BalloonWindowPool.class);
+
+  private final Shell parent;
+  private final int style;
+  private final int capacity;
+  private final ArrayList<BalloonWindow> windows;
+  private final Listener parentListener;
+  private boolean disposed;
+
+  /**
+   * Constructs a pool of balloon windows with the default style and the
+   * default capacity.
+   *
+   * @param parent
+   *    the parent shell of the balloon windows in the new pool.
+   */
+  public BalloonWindowPool(Shell parent) {
+    this(parent, BalloonWindow.DEFAULT_STYLE, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a pool of balloon windows with the default capacity.
+   *
+   * @param parent
+   *    the parent shell of the balloon windows in the new pool.
+   * @param style
+   *    the style of the balloon windows in the new pool.
+   */
+  public BalloonWindowPool(Shell parent, int style) {
+    this(parent, style, DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Constructs a pool of balloon windows.
+   *
+   * @param parent
+   *    the parent shell of the balloon windows in the new pool.
+   * @param style
+   *    the style of the balloon windows in the new pool.
+   * @param capacity
+   *    the maximum number of the idle balloon windows kept in the new pool.
+   *    The windows returned to a full pool are disposed.
+   */
+  public BalloonWindowPool(Shell parent, int style, int capacity) {
+    if (parent == null) {
+      SWT.error(SWT.ERROR_NULL_ARGUMENT);
+    }
+    if (parent.isDisposed()) {
+      SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+    if (capacity < 0) {
+      SWT.error(SWT.ERROR_INVALID_ARGUMENT);
+    }
+    this.parent = parent;
+    this.style = style;
+    this.capacity = capacity;
+    this.windows = new ArrayList<BalloonWindow>(capacity);
+    this.disposed = false;
+    //  the windows dispose themselves with the parent shell
+    this.parentListener = new Listener() {
+      @Override
+      public void handleEvent(Event event) {
+        disposed = true;
+        windows.clear();
+      }
+    };
+    parent.addListener(SWT.Dispose, parentListener);
+  }
+
+  /**
+   * Gets the parent shell of the balloon windows in this pool.
+   *
+   * @return the parent shell of the balloon windows in this pool.
+   */
+  public Shell getParent() {
+    return parent;
+  }
+
+  /**
+   * Gets the style of the balloon windows in this pool.
+   *
+   * @return the style of the balloon windows in this pool.
+   */
+  public int getStyle() {
+    return style;
+  }
+
+  /**
+   * Gets the maximum number of the idle balloon windows kept in this pool.
+   *
+   * @return the maximum number of the idle balloon windows kept in this pool.
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Gets the number of the idle balloon windows currently kept in this pool.
+   *
+   * @return the number of the idle balloon windows currently kept in this
+   *    pool.
+   */
+  public int getIdleCount() {
+    return windows.size();
+  }
+
+  /**
+   * Pre-builds idle balloon windows, so that the following acquisitions do
+   * not need to create any shell.
+   *
+   * @param count
+   *    the number of idle windows expected in this pool. It is limited by the
+   *    capacity of this pool.
+   */
+  public void prefill(int count) {
+    checkDisposed();
+    final int n = Math.min(count, capacity);
+    while (windows.size() < n) {
+      windows.add(new BalloonWindow(parent, style, this));
+    }
+  }
+
+  /**
+   * Acquires a balloon window from this pool.
+   * <p>
+   * The returned window is hidden and has the default settings of a newly
+   * created window; its contents composite is empty. The caller should set
+   * the contents, the title, the anchor and the location of the window and
+   * then open it. Closing the window returns it to this pool.
+   * <p>
+   * The generation of the returned window is increased, see
+   * {@link BalloonWindow#getGeneration()}.
+   *
+   * @return a balloon window acquired from this pool.
+   */
+  public BalloonWindow acquire() {
+    checkDisposed();
+    while (! windows.isEmpty()) {
+      final BalloonWindow window = windows.remove(windows.size() - 1);
+      if (! window.isDisposed()) {
+        LOGGER.trace("Reuse a pooled balloon window.");
+        window.acquired();
+        return window;
+      }
+    }
+    LOGGER.trace("Create a new pooled balloon window.");
+    final BalloonWindow window = new BalloonWindow(parent, style, this);
+    window.acquired();
+    return window;
+  }
+
+  /**
+   * Returns a hidden balloon window to this pool.
+   *
+   * @param window
+   *    the balloon window to be returned, which must have been acquired from
+   *    this pool.
+   */
+  void release(BalloonWindow window) {
+    if (window.isDisposed() || window.isReleased()) {
+      return;
+    }
+    window.released();
+    if (disposed || (windows.size() >= capacity)) {
+      window.getShell().dispose();
+      return;
+    }
+    window.reset();
+    windows.add(window);
+  }
+
+  /**
+   * Tests whether this pool is disposed.
+   *
+   * @return <code>true</code> if this pool is disposed; <code>false</code>
+   *    otherwise.
+   */
+  public boolean isDisposed() {
+    return disposed;
+  }
+
+  /**
+   * Disposes this pool and all of its idle balloon windows. The windows
+   * currently in use are disposed when they are closed.
+   */
+  public void dispose() {
+    if (disposed) {
+      return;
+    }
+    disposed = true;
+    if (! parent.isDisposed()) {
+      parent.removeListener(SWT.Dispose, parentListener);
+    }
+    for (final BalloonWindow window : windows) {
+      if (! window.isDisposed()) {
+        window.getShell().dispose();
+      }
+    }
+    windows.clear();
+  }
+
+  private void checkDisposed() {
+    if (disposed) {
+      SWT.error(SWT.ERROR_WIDGET_DISPOSED);
+    }
+  }
+}
@@ -26,6 +26,7 @@ import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Shell;
 
+import com.github.haixing_hu.swt.utils.ResourceTracker;
 import com.github.haixing_hu.swt.utils.SWTGraphicUtils;
 
 /**
@@ -39,6 +40,7 @@ public class BlurredPanel {
   private int radius;
   private Shell panel;
   private Canvas canvas;
+  private Image blurredImage;
 
   /**
    * Constructs a new instance of this class given its parent.
@@ -93,6 +95,14 @@ public class BlurredPanel {
       }
     });
 
+    panel.addListener(SWT.Dispose, new Listener() {
+
+      @Override
+      public void handleEvent(final Event event) {
+        disposeBlurredImage();
+      }
+    });
+
     canvas = new Canvas(panel, SWT.NO_BACKGROUND | SWT.DOUBLE_BUFFERED);
     canvas.addPaintListener(new PaintListener() {
 
@@ -116,19 +126,29 @@ public class BlurredPanel {
    */
   private void paintCanvas(final PaintEvent e) {
     // Paint the panel
-    e.gc.drawImage(createBlurredImage(), 0, 0);
+    disposeBlurredImage();
+    blurredImage = createBlurredImage();
+    e.gc.drawImage(blurredImage, 0, 0);
+  }
+
+  private void disposeBlurredImage() {
+    if (blurredImage != null) {
+      blurredImage.dispose();
+      blurredImage = null;
+    }
   }
 
   private Image createBlurredImage() {
     final Display display = parent.getDisplay();
     final Point parentSize = parent.getSize();
-    final Image image = new Image(display,parentSize.x, parentSize.y);
+    final Image image = ResourceTracker.track(new Image(display,
+        parentSize.x, parentSize.y));
     final GC gc = new GC(parent);
     gc.copyArea(image, 0, 0);
     gc.dispose();
     final ImageData data = SWTGraphicUtils.blur(image.getImageData(), radius);
     image.dispose();
-    return new Image(display, data);
+    return ResourceTracker.track(new Image(display, data));
   }
 
   /**
@@ -0,0 +1,254 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.haixing_hu.swt.utils.ResourceTracker;
+
+/**
+ * A cache of the rendered images of the close buttons on the title bar of the
+ * balloon windows, shared by all balloon windows of a display.
+ * <p>
+ * The images are keyed by the RGB values of the background and foreground
+ * colors and the zoom level of the display, and are reference counted. An
+ * image is disposed when it is evicted while no close button uses it, or when
+ * the display is disposed. The images are created through
+ * {@link ResourceTracker}, so they show up in its resource reports. The
+ * instances of this class must be accessed in the UI thread of its display.
+ *
+ * @author Haixing Hu
+ */
+final class CloseIconCache {
+
+  /**
+   * The size of the close icon.
+   */
+  static final int ICON_SIZE = 11;
+
+  /**
+   * The maximum number of the unused icons kept in a cache.
+   */
+  static final int MAX_ENTRIES = 16;
+
+  private static final int STANDARD_DPI = 96;
+
+  private static final String DATA_KEY = CloseIconCache.class.getName();
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CloseIconCache.class);
+
+  /**
+   * Gets the close icon cache of a display.
+   *
+   * @param display
+   *          a specified display.
+   * @return the close icon cache of the specified display.
+   */
+  static CloseIconCache getInstance(final Display display) {
+    CloseIconCache cache = (CloseIconCache) display.getData(DATA_KEY);
+    if (cache == null) {
+      cache = new CloseIconCache(display);
+      display.setData(DATA_KEY, cache);
+      final CloseIconCache theCache = cache;
+      display.disposeExec(new Runnable() {
+        @Override
+        public void run() {
+          theCache.dispose();
+        }
+      });
+    }
+    return cache;
+  }
+
+  private final Display display;
+  private final LinkedHashMap<Key, SharedIcon> icons;
+  private final Map<Image, SharedIcon> owners;
+
+  private CloseIconCache(final Display display) {
+    this.display = display;
+    this.icons = new LinkedHashMap<Key, SharedIcon>(16, 0.75f, true);
+    this.owners = new IdentityHashMap<Image, SharedIcon>();
+  }
+
+  /**
+   * Acquires the close icon drawn with the specified colors.
+   * <p>
+   * The returned image is shared and <b>MUST NOT</b> be disposed by the
+   * caller. It should be released by calling {@link #release(Image)} when it
+   * is no longer used.
+   *
+   * @param bg
+   *          the background color.
+   * @param fg
+   *          the foreground color.
+   * @return the image of the close icon.
+   */
+  Image acquire(Color bg, Color fg) {
+    final Key key = new Key(bg.getRGB(), fg.getRGB(), getZoom());
+    SharedIcon shared = icons.get(key);
+    if (shared == null) {
+      LOGGER.trace("Render the close icon for {}", key);
+      shared = new SharedIcon(createCloseImage(display, bg, fg));
+      icons.put(key, shared);
+      owners.put(shared.image, shared);
+    }
+    //  count the reference before evicting, so that the icon just created is
+    //  never evicted
+    ++shared.references;
+    evictUnusedIcons();
+    return shared.image;
+  }
+
+  /**
+   * Releases an image acquired by {@link #acquire(Color, Color)}.
+   *
+   * @param image
+   *          the image to be released.
+   */
+  void release(Image image) {
+    final SharedIcon shared = owners.get(image);
+    if ((shared != null) && (shared.references > 0)) {
+      --shared.references;
+    }
+  }
+
+  /**
+   * Gets the number of the cached icons.
+   *
+   * @return the number of the cached icons.
+   */
+  int size() {
+    return icons.size();
+  }
+
+  /**
+   * Disposes all the cached icons.
+   */
+  void dispose() {
+    for (final SharedIcon shared : icons.values()) {
+      shared.image.dispose();
+    }
+    icons.clear();
+    owners.clear();
+  }
+
+  private int getZoom() {
+    final Point dpi = display.getDPI();
+    return (dpi.x * 100) / STANDARD_DPI;
+  }
+
+  private void evictUnusedIcons() {
+    final Iterator<SharedIcon> iter = icons.values().iterator();
+    while ((icons.size() > MAX_ENTRIES) && iter.hasNext()) {
+      final SharedIcon shared = iter.next();
+      if (shared.references == 0) {
+        iter.remove();
+        owners.remove(shared.image);
+        shared.image.dispose();
+      }
+    }
+  }
+
+  /**
+   * Creates the image of the closing button on the title bar of the balloon
+   * window.
+   *
+   * @param display
+   *    a specified display.
+   * @param bg
+   *    the background color.
+   * @param fg
+   *    the foreground color.
+   * @return
+   *    the image of the closing button on the title bar of the balloon window.
+   */
+  private static Image createCloseImage(Display display, Color bg, Color fg) {
+    final int size = ICON_SIZE, off = 1;
+    final Image image = ResourceTracker.trackCached(new Image(display, size, size));
+    final GC gc = new GC(image);
+    gc.setBackground(bg);
+    gc.fillRectangle(image.getBounds());
+    gc.setForeground(fg);
+    gc.drawLine(0 + off, 0 + off, size - 1 - off, size - 1 - off);
+    gc.drawLine(1 + off, 0 + off, size - 1 - off, size - 2 - off);
+    gc.drawLine(0 + off, 1 + off, size - 2 - off, size - 1 - off);
+    gc.drawLine(size - 1 - off, 0 + off, 0 + off, size - 1 - off);
+    gc.drawLine(size - 1 - off, 1 + off, 1 + off, size - 1 - off);
+    gc.drawLine(size - 2 - off, 0 + off, 0 + off, size - 2 - off);
+    gc.dispose();
+    return image;
+  }
+
+  private static final class SharedIcon {
+    final Image image;
+    int references;
+
+    SharedIcon(Image image) {
+      this.image = image;
+      this.references = 0;
+    }
+  }
+
+  private static final class Key {
+    private final RGB background;
+    private final RGB foreground;
+    private final int zoom;
+
+    Key(RGB background, RGB foreground, int zoom) {
+      this.background = background;
+      this.foreground = foreground;
+      this.zoom = zoom;
+    }
+
+    @Override
+    public int hashCode() {
+      int code = background.hashCode();
+      code = (31 * code) + foreground.hashCode();
+      code = (31 * code) + zoom;
+      return code;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (! (obj instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) obj;
+      return background.equals(other.background)
+          && foreground.equals(other.foreground)
+          && (zoom == other.zoom);
+    }
+
+    @Override
+    public String toString() {
+      return background + ", " + foreground + ", " + zoom + "%";
+    }
+  }
+}
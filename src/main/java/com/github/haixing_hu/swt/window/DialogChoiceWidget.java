@@ -29,6 +29,7 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.swt.widgets.Widget;
 
+import com.github.haixing_hu.swt.utils.ResourceTracker;
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
 
 /**
@@ -221,8 +222,8 @@ public class DialogChoiceWidget extends Composite {
   private void drawComposite() {
 
     final Rectangle rect = this.getClientArea();
-    final Image newImage = new Image(getDisplay(), Math.max(1, rect.width),
-        Math.max(1, rect.height));
+    final Image newImage = ResourceTracker.track(new Image(getDisplay(),
+        Math.max(1, rect.width), Math.max(1, rect.height)));
 
     final GC gc = new GC(newImage);
 
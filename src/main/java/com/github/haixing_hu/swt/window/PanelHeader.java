@@ -30,6 +30,7 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Layout;
 import org.eclipse.swt.widgets.Listener;
 
+import com.github.haixing_hu.swt.utils.ResourceTracker;
 import com.github.haixing_hu.swt.utils.SWTResourceManager;
 import com.github.haixing_hu.swt.utils.SWTUtils;
 
@@ -274,8 +275,8 @@ public class PanelHeader extends Composite {
   private void drawBackground() {
     final Display display = getDisplay();
     final Rectangle rect = getClientArea();
-    final Image newImage = new Image(display, Math.max(1, rect.width),
-        Math.max(1, rect.height));
+    final Image newImage = ResourceTracker.track(new Image(display,
+        Math.max(1, rect.width), Math.max(1, rect.height)));
 
     final GC gc = new GC(newImage);
     gc.setForeground(gradientStart);
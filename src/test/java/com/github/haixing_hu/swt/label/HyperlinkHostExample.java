@@ -0,0 +1,80 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.label;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+import com.github.haixing_hu.swt.utils.SWTUtils;
+
+/**
+ * This snippet demonstrates the {@link HyperlinkHost} displaying many
+ * windowless {@link HyperlinkElement}s.
+ *
+ * @author Haixing Hu
+ */
+public class HyperlinkHostExample {
+
+  private static final int COLUMNS = 5;
+  private static final int ROWS = 60;
+
+  /**
+   * @param args
+   */
+  public static void main(final String[] args) {
+    final Display display = new Display();
+    final Shell shell = new Shell(display);
+
+    shell.setText("HyperlinkHost Example");
+    shell.setLayout(new FillLayout());
+
+    final HyperlinkHost host = new HyperlinkHost(shell, SWT.NONE);
+    final SelectionAdapter listener = new SelectionAdapter() {
+      @Override
+      public void widgetSelected(SelectionEvent e) {
+        final HyperlinkElement element = (HyperlinkElement) e.data;
+        System.out.println("Clicked: " + element.getText());
+      }
+    };
+    for (int row = 0; row < ROWS; ++row) {
+      for (int col = 0; col < COLUMNS; ++col) {
+        final HyperlinkElement element = new HyperlinkElement(host);
+        element.setText("Link " + row + "." + col);
+        element.setToolTipText("This is the link " + row + "." + col);
+        element.pack();
+        final Point size = element.computeSize();
+        element.setLocation(col * 100 + 4, row * (size.y + 4) + 4);
+        element.addSelectionListener(listener);
+      }
+    }
+
+    shell.pack();
+    SWTUtils.centerShell(shell);
+    shell.open();
+    while (!shell.isDisposed()) {
+      if (!display.readAndDispatch()) {
+        display.sleep();
+      }
+    }
+    SWTResourceManager.dispose();
+    display.dispose();
+  }
+}
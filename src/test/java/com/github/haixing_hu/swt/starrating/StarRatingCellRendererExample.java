@@ -0,0 +1,79 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.starrating;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+
+/**
+ * A simple example for the StarRatingCellRenderer.
+ *
+ * @author Haixing Hu
+ */
+public class StarRatingCellRendererExample {
+
+  private static final int ROWS = 10000;
+
+  public static void main(final String[] args) {
+    final Display display = new Display();
+    final Shell shell = new Shell(display);
+    shell.setText("StarRatingCellRenderer Example");
+    shell.setLayout(new FillLayout());
+
+    final Table table = new Table(shell, SWT.BORDER | SWT.FULL_SELECTION);
+    table.setHeaderVisible(true);
+    final TableColumn name = new TableColumn(table, SWT.NONE);
+    name.setText("Name");
+    name.setWidth(200);
+    final TableColumn rating = new TableColumn(table, SWT.NONE);
+    rating.setText("Rating");
+    rating.setWidth(100);
+
+    final StarRatingCellRenderer renderer = new StarRatingCellRenderer(table,
+        1, StarRating.Size.SMALL, StarRating.DEFAULT_MAX_NUMBERS_OF_STARS);
+    for (int i = 0; i < ROWS; ++i) {
+      final TableItem item = new TableItem(table, SWT.NONE);
+      item.setText(0, "Item " + i);
+      renderer.setRating(item, i % (StarRating.DEFAULT_MAX_NUMBERS_OF_STARS + 1));
+    }
+    renderer.addSelectionListener(new SelectionAdapter() {
+      @Override
+      public void widgetSelected(final SelectionEvent e) {
+        final TableItem item = (TableItem) e.item;
+        System.out.println(item.getText(0) + " is rated "
+            + renderer.getRating(item));
+      }
+    });
+
+    shell.setSize(400, 600);
+    shell.open();
+    while (! shell.isDisposed()) {
+      if (! display.readAndDispatch()) {
+        display.sleep();
+      }
+    }
+    SWTResourceManager.dispose();
+    display.dispose();
+  }
+}
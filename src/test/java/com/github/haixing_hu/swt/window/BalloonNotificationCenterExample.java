@@ -0,0 +1,74 @@
+/******************************************************************************
+ *
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v1.0 which accompanies this distribution,
+ * and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Haixing Hu (https://github.com/Haixing-Hu/) - Initial implementation and API.
+ *
+ ******************************************************************************/
+
+package com.github.haixing_hu.swt.window;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.SelectionAdapter;
+import org.eclipse.swt.events.SelectionEvent;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import com.github.haixing_hu.swt.utils.SWTResourceManager;
+import com.github.haixing_hu.swt.utils.SWTUtils;
+
+/**
+ * This snippet demonstrates the {@link BalloonNotificationCenter} receiving a
+ * burst of notifications from a background thread.
+ *
+ * @author Haixing Hu
+ */
+public class BalloonNotificationCenterExample {
+
+  private static final int BURST_SIZE = 200;
+
+  public static void main(String[] args) {
+    final Display display = new Display();
+    final Shell shell = new Shell(display);
+    shell.setText("BalloonNotificationCenter Example");
+    shell.setLayout(new GridLayout(1, false));
+    shell.setSize(400, 200);
+    SWTUtils.centerShell(shell);
+
+    final BalloonNotificationCenter center = new BalloonNotificationCenter(shell);
+    final Button button = new Button(shell, SWT.NONE);
+    button.setText("Post " + BURST_SIZE + " notifications");
+    button.addSelectionListener(new SelectionAdapter() {
+      @Override
+      public void widgetSelected(SelectionEvent e) {
+        new Thread() {
+          @Override
+          public void run() {
+            for (int i = 0; i < BURST_SIZE; ++i) {
+              //  many of the notifications are duplicated and merged
+              center.post("Job " + (i % 5), "The job " + (i % 5)
+                  + " has finished.", SWT.ICON_INFORMATION);
+            }
+          }
+        }.start();
+      }
+    });
+
+    shell.open();
+    while (!shell.isDisposed()) {
+      if (!display.readAndDispatch()) {
+        display.sleep();
+      }
+    }
+    SWTResourceManager.dispose();
+    display.dispose();
+  }
+}